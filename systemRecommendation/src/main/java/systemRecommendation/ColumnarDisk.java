@@ -0,0 +1,168 @@
+/* ColumnarDisk.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+
+package systemRecommendation;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/* A disk kept column by column instead of as SiegfriedFile objects:
+ * the sizes and depths of all files in one array each, and the pronom
+ * ids of all matches in a single array, where the matches of file i
+ * are those from matchOffsets[i] to matchOffsets[i + 1].
+ * 
+ * A disk of millions of files thus takes a handful of arrays instead of
+ * tens of millions of small objects. It holds everything the relevances
+ * and statistics need, yet no paths (see PronomRelevance.relevances and
+ * PronomStatistics.countPronoms).
+ * 
+ * Use a Builder to fill it, e.g. as consumer of a reader, or read it
+ * right away by ExtractSiegfriedData.extractColumnarDisk or
+ * MappedSiegfriedReader.extractColumnarDisk. To keep it outside of
+ * the heap, store it in a DiskArena.
+ */
+public class ColumnarDisk implements DiskColumns
+{
+	/* Disk name (usually xy.ISO) */
+	public final String name;
+
+	/* The size of each file, -1 if unknown. */
+	final long[] sizes;
+
+	/* The depth of each file, see SiegfriedFile.depth. */
+	final short[] depths;
+
+	/* The first match of each file, followed by the number of matches. */
+	final int[] matchOffsets;
+
+	/* The pronom ids of all matches, file by file. */
+	final int[] pronoms;
+
+	private ColumnarDisk(String name, long[] sizes, short[] depths,
+		int[] matchOffsets, int[] pronoms)
+	{
+		this.name = name;
+		this.sizes = sizes;
+		this.depths = depths;
+		this.matchOffsets = matchOffsets;
+		this.pronoms = pronoms;
+	}
+
+	@Override
+	public String name() { return name; }
+
+	@Override
+	public int fileCount() { return sizes.length; }
+
+	@Override
+	public long fileSize(int file) { return sizes[file]; }
+
+	@Override
+	public int depth(int file) { return depths[file]; }
+
+	@Override
+	public int matchCount(int file)
+	{
+		return matchOffsets[file + 1] - matchOffsets[file];
+	}
+
+	@Override
+	public int pronom(int file, int match)
+	{
+		return pronoms[matchOffsets[file] + match];
+	}
+
+	@Override
+	public int numberOfMatches() { return pronoms.length; }
+
+	/* Collects files into a ColumnarDisk. Hand it the files of a reader
+	 * as consumer, or add the files and their matches one by one.
+	 * Instances aren't thread-safe. */
+	public static class Builder implements Consumer<SiegfriedFile>
+	{
+		private long[] sizes = new long[1024];
+		private short[] depths = new short[1024];
+		private int[] matchOffsets = new int[1025];
+		private int[] pronoms = new int[1024];
+		private int files = 0;
+		private int matches = 0;
+
+		@Override
+		public void accept(SiegfriedFile file)
+		{
+			addFile(file.fileSize(), file.depth());
+			for (PronomMatch match : file.matches())
+			{
+				addMatch(match.id());
+			}
+		}
+
+		/* Adds a file. The following matches belong to it.
+		 * Depths beyond Short.MAX_VALUE are cut. */
+		public void addFile(long size, int depth)
+		{
+			if (files == sizes.length)
+			{
+				sizes = Arrays.copyOf(sizes, 2 * files);
+				depths = Arrays.copyOf(depths, 2 * files);
+				matchOffsets = Arrays.copyOf(matchOffsets, 2 * files + 1);
+			}
+			sizes[files] = (size >= 0 ? size : -1);
+			depths[files] = (short) Math.min(Math.max(depth, 0),
+				Short.MAX_VALUE);
+			files++;
+			matchOffsets[files] = matches;
+		}
+
+		/* Adds a match of the given pronom id to the last file. */
+		public void addMatch(int pronom)
+		{
+			if (files == 0)
+			{
+				throw new IllegalStateException("There's no file to match.");
+			}
+			if (matches == pronoms.length)
+			{
+				pronoms = Arrays.copyOf(pronoms, 2 * matches);
+			}
+			pronoms[matches++] = pronom;
+			matchOffsets[files] = matches;
+		}
+
+		/* The number of files added so far. */
+		public int fileCount() { return files; }
+
+		/* Returns the disk of the files added so far. */
+		public ColumnarDisk build(String diskName)
+		{
+			return new ColumnarDisk(diskName,
+				Arrays.copyOf(sizes, files), Arrays.copyOf(depths, files),
+				Arrays.copyOf(matchOffsets, files + 1),
+				Arrays.copyOf(pronoms, matches));
+		}
+	}
+}
@@ -0,0 +1,558 @@
+/* CorpusManifest.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/* A manifest remembers which Siegfried outputs of a corpus have already
+ * been ingested and how often each pronom occured in each of them.
+ * 
+ * On a later run only outputs that are new or changed since need to be
+ * parsed, while deleted ones are subtracted. An output counts as changed
+ * if its size or modification time differ and its content hash does too.
+ * New outputs with the content of another one aren't parsed either.
+ * 
+ * Outputs with the same fingerprint (see Deduplication) are counted
+ * only once. Note that the fingerprint covers all disks of an output,
+ * so for archives, whole archives are duplicates rather than entries.
+ * 
+ * The manifest is a text file with a line per output:
+ * 
+ *     path	size	modified	hash	fingerprint	pronom=count;pronom=count
+ * 
+ * where the path is relative to the corpus and the counts exclude
+ * unknown pronoms just like PronomStatistics does. Tabs, line breaks
+ * and separators within paths and pronoms are escaped by a backslash.
+ */
+public class CorpusManifest
+{
+	private static final String HEADER = "# Siegfried corpus manifest 2";
+
+	/* An output of the corpus as it was when last ingested. */
+	private static class Entry
+	{
+		private long size;
+		private long modified;
+		private String hash;
+
+		/* 0 if the output holds no disk at all, e.g. if it's corrupted. */
+		private long fingerprint;
+		private HashMap<String, Integer> counts;
+	}
+
+	/* An output that needs to be parsed. */
+	private static class Change
+	{
+		private String name;
+		private Path path;
+		private Entry entry = new Entry();
+
+		/* An output with the same content, if any. */
+		private Entry original = null;
+	}
+
+	/* Where the manifest is stored. */
+	private final Path file;
+
+	/* The ingested outputs by their path relative to the corpus. */
+	private final HashMap<String, Entry> entries
+		= new HashMap<String, Entry>();
+
+	/* The number of outputs by their fingerprint. */
+	private final HashMap<Long, Integer> uses = new HashMap<Long, Integer>();
+
+	private CorpusManifest(Path file)
+	{
+		this.file = file;
+	}
+
+	/* Loads the manifest from FILE.
+	 * A missing or flawed manifest yields an empty one,
+	 * so the whole corpus will be ingested again. */
+	public static CorpusManifest load(Path file) throws IOException
+	{
+		CorpusManifest manifest = new CorpusManifest(file);
+
+		try (BufferedReader reader
+			= Files.newBufferedReader(file, StandardCharsets.UTF_8))
+		{
+			if (!HEADER.equals(reader.readLine())) { return manifest; }
+
+			String line;
+			while ((line = reader.readLine()) != null)
+			{
+				if (line.isEmpty()) { continue; }
+
+				List<String> fields = split(line, '\t');
+				if (fields.size() != 6)
+				{
+					throw new NumberFormatException("Flawed manifest line");
+				}
+
+				Entry entry = new Entry();
+				entry.size = Long.parseLong(fields.get(1));
+				entry.modified = Long.parseLong(fields.get(2));
+				entry.hash = unescape(fields.get(3));
+				entry.fingerprint = Long.parseUnsignedLong(fields.get(4), 16);
+				entry.counts = new HashMap<String, Integer>();
+				for (String count : split(fields.get(5), ';'))
+				{
+					if (count.isEmpty()) { continue; }
+					List<String> pair = split(count, '=');
+					if (pair.size() != 2)
+					{
+						throw new NumberFormatException("Flawed pronom count");
+					}
+					entry.counts.put(unescape(pair.get(0)),
+						Integer.parseInt(pair.get(1)));
+				}
+				manifest.entries.put(unescape(fields.get(0)), entry);
+				manifest.include(entry, null);
+			}
+		}
+		catch(NoSuchFileException e)
+		{
+			/* Nothing has been ingested yet. */
+		}
+		catch(NumberFormatException e)
+		{
+			manifest.entries.clear();
+			manifest.uses.clear();
+		}
+		return manifest;
+	}
+
+	/* Stores the manifest. The previous one is only replaced once the
+	 * new one has been written completely. */
+	public void save() throws IOException
+	{
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+		try (BufferedWriter writer
+			= Files.newBufferedWriter(temporary, StandardCharsets.UTF_8))
+		{
+			writer.write(HEADER);
+			writer.write('\n');
+
+			for (Map.Entry<String, Entry> output : entries.entrySet())
+			{
+				Entry entry = output.getValue();
+
+				StringBuilder counts = new StringBuilder();
+				for (Map.Entry<String, Integer> count
+					: entry.counts.entrySet())
+				{
+					if (counts.length() > 0) { counts.append(';'); }
+					counts.append(escape(count.getKey()))
+						.append('=').append(count.getValue());
+				}
+
+				writer.write(escape(output.getKey()) + '\t' + entry.size
+					+ '\t' + entry.modified + '\t' + escape(entry.hash)
+					+ '\t' + Long.toHexString(entry.fingerprint)
+					+ '\t' + counts);
+				writer.write('\n');
+			}
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/* The number of outputs in the manifest. */
+	public int size()
+	{
+		return entries.size();
+	}
+
+	/* The number of outputs that are duplicates of others. */
+	public int duplicates()
+	{
+		int duplicates = 0;
+		for (int count : uses.values())
+		{
+			duplicates += count - 1;
+		}
+		return duplicates;
+	}
+
+	/* The pronom counts of all distinct outputs in the manifest. */
+	public PronomCounts totals()
+	{
+		PronomCounts totals = new PronomCounts();
+		HashSet<Long> counted = new HashSet<Long>();
+		for (Entry entry : entries.values())
+		{
+			if (entry.fingerprint == 0 || counted.add(entry.fingerprint))
+			{
+				totals.add(entry.counts, 1);
+			}
+		}
+		return totals;
+	}
+
+	/* Brings the manifest up to date with the corpus at ROOT.
+	 * 
+	 * FREQUENCY	pronom counts matching the manifest so far.
+	 * 				They are updated in place by the counts of new,
+	 * 				changed and deleted outputs.
+	 * 
+	 * WORKERS		the number of threads parsing new or changed outputs.
+	 * 
+	 * RETURNS		the number of outputs that had to be parsed.
+	 */
+	public int update(Path root, int workers, PronomCounts frequency)
+		throws IOException
+	{
+		HashSet<String> seen = new HashSet<String>();
+		ArrayList<Change> changes = new ArrayList<Change>();
+
+		/* Outputs by their content hash, to spot copies. */
+		HashMap<String, Entry> contents = new HashMap<String, Entry>();
+		for (Entry entry : entries.values())
+		{
+			contents.put(entry.hash, entry);
+		}
+		Path self = file.toAbsolutePath().normalize();
+		Path temporary = self.resolveSibling(self.getFileName() + ".tmp");
+
+		/* 1. Find the outputs that are new or changed. */
+		try (Stream<Path> files = SiegfriedCorpus.files(root))
+		{
+			for (Path path : files.collect(Collectors.toList()))
+			{
+				/* Don't ingest the manifest itself. */
+				Path absolute = path.toAbsolutePath().normalize();
+				if (absolute.equals(self) || absolute.equals(temporary))
+				{
+					continue;
+				}
+
+				String name = SiegfriedCorpus.diskName(root, path);
+				seen.add(name);
+
+				BasicFileAttributes attributes
+					= Files.readAttributes(path, BasicFileAttributes.class);
+				long size = attributes.size();
+				long modified = attributes.lastModifiedTime().toMillis();
+
+				Entry entry = entries.get(name);
+				if (entry != null && entry.size == size
+					&& entry.modified == modified)
+				{
+					continue;
+				}
+
+				/* Only touched, yet the content is the same. */
+				String hash = hash(path);
+				if (entry != null && entry.hash.equals(hash))
+				{
+					entry.size = size;
+					entry.modified = modified;
+					continue;
+				}
+
+				Change change = new Change();
+				change.name = name;
+				change.path = path;
+				change.entry.size = size;
+				change.entry.modified = modified;
+				change.entry.hash = hash;
+				changes.add(change);
+
+				/* A copy of another output doesn't need to be parsed. */
+				change.original = contents.get(hash);
+				if (change.original == null)
+				{
+					contents.put(hash, change.entry);
+				}
+			}
+		}
+
+		/* 2. Subtract the outputs that have been deleted. */
+		Iterator<Map.Entry<String, Entry>> iterator
+			= entries.entrySet().iterator();
+		while (iterator.hasNext())
+		{
+			Map.Entry<String, Entry> output = iterator.next();
+			if (!seen.contains(output.getKey()))
+			{
+				exclude(output.getValue(), frequency);
+				iterator.remove();
+			}
+		}
+
+		/* 3. Parse the new and changed outputs. */
+		ArrayList<Change> parsed = new ArrayList<Change>();
+		for (Change change : changes)
+		{
+			if (change.original == null) { parsed.add(change); }
+		}
+		count(root, parsed, workers);
+
+		for (Change change : changes)
+		{
+			if (change.original != null)
+			{
+				change.entry.fingerprint = change.original.fingerprint;
+				change.entry.counts = change.original.counts;
+			}
+
+			Entry previous = entries.put(change.name, change.entry);
+			if (previous != null)
+			{
+				exclude(previous, frequency);
+			}
+			include(change.entry, frequency);
+		}
+		return parsed.size();
+	}
+
+	/* Takes an output into account. Its counts are only added to
+	 * FREQUENCY (if not null) if it's no duplicate. */
+	private void include(Entry entry, PronomCounts frequency)
+	{
+		if (entry.fingerprint == 0) { return; }
+
+		Integer count = uses.get(entry.fingerprint);
+		uses.put(entry.fingerprint, (count == null ? 1 : count + 1));
+		if (count == null && frequency != null)
+		{
+			frequency.add(entry.counts, 1);
+		}
+	}
+
+	/* Reverts include(entry, frequency). */
+	private void exclude(Entry entry, PronomCounts frequency)
+	{
+		if (entry.fingerprint == 0) { return; }
+
+		int count = uses.get(entry.fingerprint) - 1;
+		if (count > 0)
+		{
+			uses.put(entry.fingerprint, count);
+			return;
+		}
+		uses.remove(entry.fingerprint);
+		frequency.add(entry.counts, -1);
+	}
+
+	/* Counts the pronoms of the changed outputs. */
+	private static void count(Path root, List<Change> changes, int workers)
+		throws IOException
+	{
+		if (workers <= 1)
+		{
+			for (Change change : changes)
+			{
+				count(root, change);
+			}
+			return;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		try
+		{
+			ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>();
+			for (Change change : changes)
+			{
+				futures.add(executor.submit(() ->
+				{
+					count(root, change);
+					return null;
+				}));
+			}
+
+			for (Future<Void> future : futures)
+			{
+				try
+				{
+					future.get();
+				}
+				catch(ExecutionException e)
+				{
+					if (e.getCause() instanceof IOException)
+					{
+						throw (IOException) e.getCause();
+					}
+					if (e.getCause() instanceof Error)
+					{
+						throw (Error) e.getCause();
+					}
+					throw new IllegalStateException(e.getCause());
+				}
+				catch(InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException(
+						"Interrupted while parsing " + root);
+				}
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	/* Counts the pronoms of a single output and takes its fingerprint.
+	 * Corrupted outputs count nothing, just like when they're skipped
+	 * by PronomStatistics. */
+	private static void count(Path root, Change change) throws IOException
+	{
+		List<Disk> disks = SiegfriedCorpus.extractDisks(root, change.path);
+
+		PronomCounts counts = new PronomCounts();
+		for (Disk disk : disks)
+		{
+			PronomStatistics.countPronoms(disk, counts);
+		}
+		change.entry.counts = counts.toMap();
+		change.entry.fingerprint = (disks.isEmpty() ? 0
+			: Deduplication.fingerprint(disks));
+	}
+
+	/* The SHA-256 hash of the content of a file in hex. */
+	private static String hash(Path path) throws IOException
+	{
+		MessageDigest digest;
+		try
+		{
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch(NoSuchAlgorithmException e)
+		{
+			/* Every Java platform supports SHA-256. */
+			throw new IllegalStateException(e);
+		}
+
+		byte[] buffer = new byte[1 << 16];
+		try (InputStream stream = Files.newInputStream(path))
+		{
+			int read;
+			while ((read = stream.read(buffer)) > 0)
+			{
+				digest.update(buffer, 0, read);
+			}
+		}
+
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest())
+		{
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+	/* Escapes characters that would end a field. */
+	private static String escape(String text)
+	{
+		StringBuilder escaped = new StringBuilder(text.length());
+		for (char c : text.toCharArray())
+		{
+			switch (c)
+			{
+			case '\t': escaped.append("\\t"); break;
+			case '\n': escaped.append("\\n"); break;
+			case '\r': escaped.append("\\r"); break;
+			case '\\': case ';': case '=':
+				escaped.append('\\').append(c);
+				break;
+			default: escaped.append(c);
+			}
+		}
+		return escaped.toString();
+	}
+
+	/* Splits LINE at every unescaped SEPARATOR.
+	 * The parts are still escaped. */
+	private static List<String> split(String line, char separator)
+	{
+		ArrayList<String> parts = new ArrayList<String>();
+		int start = 0;
+
+		for (int i = 0; i < line.length(); i++)
+		{
+			char c = line.charAt(i);
+			if (c == '\\')
+			{
+				i++;
+			}
+			else if (c == separator)
+			{
+				parts.add(line.substring(start, i));
+				start = i + 1;
+			}
+		}
+		parts.add(line.substring(start));
+		return parts;
+	}
+
+	/* Reverts escape(text). */
+	private static String unescape(String text)
+	{
+		StringBuilder unescaped = new StringBuilder(text.length());
+
+		for (int i = 0; i < text.length(); i++)
+		{
+			char c = text.charAt(i);
+			if (c == '\\' && i + 1 < text.length())
+			{
+				char escaped = text.charAt(++i);
+				unescaped.append(escaped == 't' ? '\t' : escaped == 'n' ? '\n'
+					: escaped == 'r' ? '\r' : escaped);
+			}
+			else
+			{
+				unescaped.append(c);
+			}
+		}
+		return unescaped.toString();
+	}
+}
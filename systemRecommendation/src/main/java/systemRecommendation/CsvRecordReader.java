@@ -0,0 +1,144 @@
+/* CsvRecordReader.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+
+/* Reads comma separated values record by record.
+ * 
+ * The input is read line by line. Fields may be quoted with '"',
+ * in which case they may contain commas, doubled quotes and line breaks.
+ */
+class CsvRecordReader
+{
+	private final BufferedReader reader;
+
+	/* Reused for every record. */
+	private final ArrayList<String> fields = new ArrayList<String>();
+	private final StringBuilder field = new StringBuilder();
+
+	CsvRecordReader(Reader reader)
+	{
+		this.reader = (reader instanceof BufferedReader ?
+			(BufferedReader) reader : new BufferedReader(reader, 1 << 16));
+	}
+
+	/* Returns the fields of the next record,
+	 * or null if there are no more records.
+	 * 
+	 * EXCEPTION	SiegfriedFormatException if a quoted field isn't closed
+	 */
+	String[] next() throws IOException
+	{
+		String line = reader.readLine();
+		if (line == null) { return null; }
+
+		fields.clear();
+		field.setLength(0);
+		boolean quoted = false;
+		int i = 0;
+
+		while (true)
+		{
+			if (i == line.length())
+			{
+				if (!quoted) { break; }
+
+				/* A quoted field continues on the next line. */
+				line = reader.readLine();
+				if (line == null)
+				{
+					throw new SiegfriedFormatException(
+						"Unterminated quoted field");
+				}
+				field.append('\n');
+				i = 0;
+				continue;
+			}
+
+			char c = line.charAt(i++);
+			if (quoted)
+			{
+				if (c != '"') { field.append(c); }
+				else if (i < line.length() && line.charAt(i) == '"')
+				{
+					/* A doubled quote stands for a single one. */
+					field.append('"');
+					i++;
+				}
+				else { quoted = false; }
+			}
+			else if (c == '"') { quoted = true; }
+			else if (c == ',')
+			{
+				fields.add(field.toString());
+				field.setLength(0);
+			}
+			else { field.append(c); }
+		}
+		fields.add(field.toString());
+
+		return fields.toArray(new String[fields.size()]);
+	}
+
+	/* Returns the fields of the header, i.e. the first record that isn't
+	 * empty, without a byte order mark.
+	 * Returns null if there are no records at all. */
+	String[] header() throws IOException
+	{
+		String[] header = next();
+		while (header != null && header.length == 1
+			&& header[0].trim().isEmpty())
+		{
+			header = next();
+		}
+		if (header == null) { return null; }
+
+		if (header[0].startsWith("\uFEFF"))
+		{
+			header[0] = header[0].substring(1);
+		}
+		return header;
+	}
+
+	/* Parses a size the way the JSON path does.
+	 * Unknown or flawed sizes are -1. */
+	static int parseSize(String size)
+	{
+		try
+		{
+			return (int) Long.parseLong(size.trim());
+		}
+		catch(NumberFormatException e)
+		{
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,223 @@
+/* Deduplication.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/* Our corpus contains duplicate copies of Siegfried outputs as well as
+ * re-scans of the same disk image. Counting them all would skew the
+ * pronom statistics, so instances of this class tell them apart.
+ * 
+ * Copies are outputs with the very same bytes. They are found before
+ * parsing: an output is only hashed once a second output of the same
+ * size shows up.
+ * 
+ * Re-scans are disks listing the same files (path, size and matches),
+ * no matter in which order or what else the outputs say, e.g. their
+ * scan date. They are found by a fingerprint of the parsed disk.
+ * 
+ * Both use 64 bit FNV-1a hashes, so telling distinct outputs apart fails
+ * with a negligible chance only.
+ */
+public class Deduplication
+{
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/* Sizes of the outputs seen so far, each with the hashing of the
+	 * first output of the size. It's only run once a second output of
+	 * the size shows up. */
+	private final HashMap<Long, FutureTask<Long>> sizes
+		= new HashMap<Long, FutureTask<Long>>();
+
+	/* Hashes of the contents of outputs sharing their size with others. */
+	private final HashSet<Long> contents = new HashSet<Long>();
+
+	/* Fingerprints of the disks seen so far. */
+	private final HashSet<Long> fingerprints = new HashSet<Long>();
+
+	private int copies = 0;
+	private int rescans = 0;
+
+	/* This function tells whether the output at PATH is a copy of an
+	 * output seen before by this function.
+	 * The outputs are hashed without holding the lock, so several threads
+	 * may ask at once. Only the first output of a size is hashed by
+	 * whichever thread needs it first, while the others wait for it. */
+	public boolean isCopy(Path path) throws IOException
+	{
+		long size = Files.size(path);
+
+		FutureTask<Long> first;
+		synchronized (this)
+		{
+			first = sizes.get(size);
+			if (first == null)
+			{
+				/* The first of its size can't be a copy. Hash it later. */
+				sizes.put(size, new FutureTask<Long>(
+					() -> mix(size) ^ hash(path)));
+				return false;
+			}
+		}
+
+		/* Runs the hashing unless it's running or done already. */
+		first.run();
+		long firstContent;
+		try
+		{
+			firstContent = first.get();
+		}
+		catch(ExecutionException e)
+		{
+			if (e.getCause() instanceof IOException)
+			{
+				throw (IOException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while hashing");
+		}
+		long content = mix(size) ^ hash(path);
+
+		synchronized (this)
+		{
+			contents.add(firstContent);
+			if (contents.add(content)) { return false; }
+			copies++;
+			return true;
+		}
+	}
+
+	/* This function tells whether the disk lists the same files as a disk
+	 * seen before by this function. */
+	public synchronized boolean isRescan(Disk disk)
+	{
+		if (fingerprints.add(fingerprint(disk))) { return false; }
+		rescans++;
+		return true;
+	}
+
+	/* The number of copies found so far. */
+	public synchronized int copies() { return copies; }
+
+	/* The number of re-scans found so far. */
+	public synchronized int rescans() { return rescans; }
+
+	/* The number of duplicates found so far. */
+	public synchronized int duplicates() { return copies + rescans; }
+
+	/* The fingerprint of a disk, independent of the order of its files
+	 * and of its name. */
+	public static long fingerprint(Disk disk)
+	{
+		long fingerprint = disk.files.length;
+		for (SiegfriedFile file : disk.files)
+		{
+			fingerprint += mix(fingerprint(file));
+		}
+		return mix(fingerprint);
+	}
+
+	/* The fingerprint of an output holding several disks, e.g. an archive,
+	 * independent of the order of the disks. */
+	public static long fingerprint(List<Disk> disks)
+	{
+		long fingerprint = disks.size();
+		for (Disk disk : disks)
+		{
+			fingerprint += fingerprint(disk);
+		}
+		return mix(fingerprint);
+	}
+
+	/* The fingerprint of a file, independent of the order of its matches. */
+	public static long fingerprint(SiegfriedFile file)
+	{
+		long matches = file.matchCount();
+		for (PronomMatch match : file.matches())
+		{
+			matches += mix(hash(FNV_OFFSET, match.pronom()));
+		}
+
+		long fingerprint = (file.getFilePath() == null ? 0
+			: hash(FNV_OFFSET, file.getFilePath()));
+		fingerprint = (fingerprint ^ file.fileSize()) * FNV_PRIME;
+		return fingerprint ^ mix(matches);
+	}
+
+	/* FNV-1a of the characters of TEXT. */
+	private static long hash(long hash, String text)
+	{
+		for (int i = 0; i < text.length(); i++)
+		{
+			char c = text.charAt(i);
+			hash = (hash ^ (c & 0xFF)) * FNV_PRIME;
+			hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+		}
+		return hash;
+	}
+
+	/* FNV-1a of the content of a file. */
+	private static long hash(Path path) throws IOException
+	{
+		long hash = FNV_OFFSET;
+		byte[] buffer = new byte[1 << 16];
+		try (InputStream stream = Files.newInputStream(path))
+		{
+			int read;
+			while ((read = stream.read(buffer)) > 0)
+			{
+				for (int i = 0; i < read; i++)
+				{
+					hash = (hash ^ (buffer[i] & 0xFF)) * FNV_PRIME;
+				}
+			}
+		}
+		return hash;
+	}
+
+	/* Spreads the bits of a hash, so sums of hashes don't cancel out. */
+	private static long mix(long hash)
+	{
+		hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+		hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+		return hash ^ (hash >>> 31);
+	}
+}
@@ -0,0 +1,109 @@
+/* DepthHistogram.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import java.util.Arrays;
+
+/* Sums of sizes by depth, penalized by a depth penalty once per level
+ * (see Folder.size and DiskProfile).
+ * 
+ * Only the depths from the lowest to the highest one added are kept,
+ * so a folder deep down a narrow tree, with files at a few levels below
+ * it only, takes a few entries rather than one per level above them.
+ * Otherwise, pathologically deep trees, e.g. from symbolic links
+ * pointing back to a folder above, would take memory quadratic in
+ * their depth.
+ */
+final class DepthHistogram
+{
+	private static final double[] EMPTY = new double[0];
+
+	/* The sums from depth 'from' on. */
+	private double[] values = EMPTY;
+	private int from = 0;
+
+	/* Adds VALUE to the sum of the given depth. */
+	void add(int depth, double value)
+	{
+		if (values.length == 0)
+		{
+			values = new double[1];
+			from = depth;
+		}
+		else if (depth < from)
+		{
+			double[] grown = new double[values.length + from - depth];
+			System.arraycopy(values, 0, grown, from - depth, values.length);
+			values = grown;
+			from = depth;
+		}
+		else if (depth >= from + values.length)
+		{
+			values = Arrays.copyOf(values, depth - from + 1);
+		}
+		values[depth - from] += value;
+	}
+
+	/* Adds the sums of another histogram, depth by depth. */
+	void add(DepthHistogram other)
+	{
+		add(other, 0);
+	}
+
+	/* Same as above, yet each sum LEVELS deeper. */
+	void add(DepthHistogram other, int levels)
+	{
+		for (int i = 0; i < other.values.length; i++)
+		{
+			add(other.from + i + levels, other.values[i]);
+		}
+	}
+
+	/* The deepest depth with a sum, -1 if there's none. */
+	int maxDepth()
+	{
+		return (values.length == 0 ? -1 : from + values.length - 1);
+	}
+
+	/* The sum of all depths, each penalized once per level. */
+	double weighted(double depthPenalty)
+	{
+		double penalty = 1;
+		for (int depth = 0; depth < from; depth++)
+		{
+			penalty *= depthPenalty;
+		}
+
+		double sum = 0;
+		for (int i = 0; i < values.length; i++)
+		{
+			sum += penalty * values[i];
+			penalty *= depthPenalty;
+		}
+		return sum;
+	}
+}
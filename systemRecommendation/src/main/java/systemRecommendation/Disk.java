@@ -26,6 +26,8 @@
 
 package systemRecommendation;
 
+import java.util.stream.IntStream;
+
 /* Instances of this class represent disks containing multiple files.
  * SystemRecommendation recommends a system for this kind of disks.
  */
@@ -36,43 +38,85 @@ public class Disk {
 	
 	/* This folder represents the files of the entire disk.
 	 * It contains all the SiegfriedFiles from 'files', yet ordered according
-	 * to their directories. */
-	public Folder disk;
+	 * to their directories.
+	 * Built on first access only (see disk()), since the relevances
+	 * don't need it. */
+	private volatile Folder disk;
 
 	/* Regular constructor. */
 	public Disk(SiegfriedFile[] files, String diskName)
 	{
 		this.files = files;
 		name = diskName;
-		disk = orderFiles(files);
 	}
 	
+	/* Returns the folder of the entire disk, ordering the files into
+	 * folders on the first call. Thread-safe, the folders are built
+	 * once. */
+	public Folder disk()
+	{
+		Folder folder = disk;
+		if (folder == null)
+		{
+			synchronized (this)
+			{
+				folder = disk;
+				if (folder == null)
+				{
+					folder = orderFiles(files);
+					disk = folder;
+				}
+			}
+		}
+		return folder;
+	}
+	
+	/* Disks of more files are ordered by several threads, each ordering
+	 * slices of this many files. */
+	private static final int SLICE = 1 << 15;
+	
 	/* This function orders a list of files according to their directories
 	 * in folders ans subfolders.
+	 * The paths are scanned in place rather than split (see
+	 * Folder.addPath), and folders are shared by all paths through them.
 	 */
-	private Folder orderFiles(SiegfriedFile[] files)
+	private static Folder orderFiles(SiegfriedFile[] files)
+	{
+		if (files.length <= SLICE)
+		{
+			return orderFiles(files, 0, files.length);
+		}
+		return orderFiles(files, SLICE);
+	}
+	
+	/* Same as above, yet the files are ordered in parallel: each slice of
+	 * SLICE files gets a tree of its own, and the trees are merged in the
+	 * order of the slices (see Folder.merge). Thus, the tree is the same
+	 * as if the files had been ordered one after the other. */
+	static Folder orderFiles(SiegfriedFile[] files, int slice)
+	{
+		int slices = (files.length + slice - 1) / slice;
+		return IntStream.range(0, slices).parallel()
+			.mapToObj(i -> orderFiles(files, i * slice,
+				(int) Math.min(files.length, (long) (i + 1) * slice)))
+			.reduce(Folder::merge)
+			.orElseGet(() -> new Folder(""));
+	}
+	
+	/* Orders the files from index FROM to TO (exclusive). */
+	static Folder orderFiles(SiegfriedFile[] files, int from, int to)
 	{
 		Folder disk = new Folder("");
 		
 		/* Add each file, one after the other.*/
-		for (SiegfriedFile file : files)
+		for (int i = from; i < to; i++)
 		{
+			SiegfriedFile file = files[i];
 			if (file == null) {continue; }
 
-			/* Iterate over the subfolders of the directory of the current file.
-			 * If the subfolder name is valid, add it if necessary and proceed
-			 *  to the next subfolder.
-			 */
-			Folder currentSubfolder = disk;
-			for (String subfolder : file.getDirectory())
-			{
-				if (subfolder != "")
-				{
-					currentSubfolder = currentSubfolder.addFolder(subfolder);
-				}
-			}
-			/* We've reached the correct subfolder. Now add the file. */
-			currentSubfolder.addFile(file);
+			/* Walk down the subfolders of the directory of the current
+			 * file, adding them if necessary. Then add the file. */
+			disk.addPath(file.getFilePath()).addFile(file);
 		}
 		return disk;
 	}
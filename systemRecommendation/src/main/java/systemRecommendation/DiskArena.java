@@ -0,0 +1,212 @@
+/* DiskArena.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/* Keeps disks outside of the Java heap, for processes holding thousands
+ * of disks for a long time, e.g. to score them again and again.
+ * 
+ * The arena allocates direct buffers of SLABSIZE bytes and stores one
+ * disk after the other into them (see OffHeapDisk). A disk larger than
+ * a slab gets a buffer of its own. The heap merely holds the buffers and
+ * a flyweight per disk, however many files and matches there are.
+ * 
+ * Disks are released one by one (release), several at once or all at
+ * once (releaseAll or close). Once all disks of a slab are released,
+ * the arena drops the slab, except for the one it currently fills, which
+ * is reused from the start. Java can't free a direct buffer right away,
+ * so the memory of a dropped slab is returned once the buffer object
+ * has been collected.
+ * 
+ * All methods are thread-safe. Storing a disk copies it while holding
+ * the arena's lock.
+ */
+public class DiskArena implements AutoCloseable
+{
+	/* 64 MiB */
+	public static final int DEFAULT_SLAB_SIZE = 64 << 20;
+
+	private final int slabSize;
+
+	/* All slabs still holding disks, including the current one. */
+	private final ArrayList<Slab> slabs = new ArrayList<Slab>();
+
+	/* The slab new disks go to, null before the first one. */
+	private Slab current = null;
+
+	/* All disks not yet released. */
+	private final Set<OffHeapDisk> disks
+		= Collections.newSetFromMap(new IdentityHashMap<OffHeapDisk, Boolean>());
+
+	public DiskArena()
+	{
+		this(DEFAULT_SLAB_SIZE);
+	}
+
+	public DiskArena(int slabSize)
+	{
+		if (slabSize < 8)
+		{
+			throw new IllegalArgumentException("Slab size " + slabSize);
+		}
+		this.slabSize = slabSize & ~7;
+	}
+
+	/* A direct buffer and the disks stored in it. */
+	static final class Slab
+	{
+		final DiskArena arena;
+		final ByteBuffer buffer;
+
+		/* The bytes taken by disks so far. */
+		int used = 0;
+
+		/* The number of disks not yet released. */
+		int live = 0;
+
+		private Slab(DiskArena arena, int capacity)
+		{
+			this.arena = arena;
+			this.buffer
+				= ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+		}
+	}
+
+	/* Copies the disk into the arena. Keep the returned disk, not the
+	 * given one, to get it out of the heap.
+	 * Throws an IllegalArgumentException for a disk too large
+	 * for a single buffer (2 GiB). */
+	public synchronized OffHeapDisk store(DiskColumns disk)
+	{
+		long bytes = OffHeapDisk.bytes(disk);
+		if (bytes > Integer.MAX_VALUE - 8)
+		{
+			throw new IllegalArgumentException("The disk " + disk.name()
+				+ " takes " + bytes + " bytes.");
+		}
+
+		Slab slab;
+		if (bytes > slabSize)
+		{
+			slab = new Slab(this, (int) bytes);
+			slabs.add(slab);
+		}
+		else
+		{
+			if (current == null || current.used + bytes > slabSize)
+			{
+				current = new Slab(this, slabSize);
+				slabs.add(current);
+			}
+			slab = current;
+		}
+
+		OffHeapDisk stored = new OffHeapDisk(disk, slab, slab.buffer, slab.used);
+		slab.used += (int) bytes;
+		slab.live++;
+		disks.add(stored);
+		return stored;
+	}
+
+	/* Releases the disk. It mustn't be read anymore, neither while
+	 * nor after it's released. Releasing it twice is fine. */
+	public synchronized void release(OffHeapDisk disk)
+	{
+		if (disk.slab.arena != this)
+		{
+			throw new IllegalArgumentException("The disk " + disk.name()
+				+ " isn't part of this arena.");
+		}
+		if (!disks.remove(disk)) { return; }
+
+		disk.release();
+		Slab slab = disk.slab;
+		if (--slab.live == 0)
+		{
+			if (slab == current)
+			{
+				slab.used = 0;
+			}
+			else
+			{
+				slabs.remove(slab);
+			}
+		}
+	}
+
+	/* Releases all given disks at once. */
+	public synchronized void release(Collection<OffHeapDisk> disks)
+	{
+		for (OffHeapDisk disk : disks)
+		{
+			release(disk);
+		}
+	}
+
+	/* Releases all disks of the arena and drops all its slabs. */
+	public synchronized void releaseAll()
+	{
+		for (OffHeapDisk disk : disks)
+		{
+			disk.release();
+		}
+		disks.clear();
+		slabs.clear();
+		current = null;
+	}
+
+	/* Same as releaseAll. */
+	@Override
+	public void close()
+	{
+		releaseAll();
+	}
+
+	/* The number of disks not yet released. */
+	public synchronized int diskCount()
+	{
+		return disks.size();
+	}
+
+	/* The bytes of all slabs still held by the arena. */
+	public synchronized long allocatedBytes()
+	{
+		long bytes = 0;
+		for (Slab slab : slabs)
+		{
+			bytes += slab.buffer.capacity();
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,58 @@
+/* DiskColumns.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+/* A disk as seen by the relevances and statistics: the size, depth and
+ * pronom ids of each file, indexed from 0 to fileCount() - 1, yet
+ * neither paths nor SiegfriedFile objects.
+ * 
+ * Kept on the heap by a ColumnarDisk, or outside of it by an
+ * OffHeapDisk (see DiskArena).
+ * 
+ * See PronomRelevance.relevances and PronomStatistics.countPronoms.
+ */
+public interface DiskColumns
+{
+	/* Disk name (usually xy.ISO) */
+	String name();
+
+	int fileCount();
+
+	/* The size of the file, -1 if unknown. */
+	long fileSize(int file);
+
+	/* The depth of the file, see SiegfriedFile.depth. */
+	int depth(int file);
+
+	int matchCount(int file);
+
+	/* The pronom id of the given match of a file. */
+	int pronom(int file, int match);
+
+	/* The number of matches of all files. */
+	int numberOfMatches();
+}
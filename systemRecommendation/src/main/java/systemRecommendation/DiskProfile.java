@@ -0,0 +1,243 @@
+/* DiskProfile.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/* A summary of a disk holding everything PronomRelevance needs of it,
+ * for any depth penalty: for each pronom and depth, the summed roots of
+ * the sizes of its files, each shared between the file's matches, and
+ * for each depth the summed roots of all files. The relevances for a
+ * depth penalty are then merely weighted sums of the depths.
+ * 
+ * A profile takes a few KB, however many files the disk has, so a
+ * process can keep lots of them and score any of them again with
+ * another depth penalty without reading the disk again.
+ * 
+ * The relevances deliberately differ from the ones PronomRelevance
+ * gives for the files themselves: PronomRelevance cuts the penalized
+ * size of each file to an integer at every depth, so small files deep
+ * down weigh little or nothing, while the profile penalizes the summed
+ * roots without cutting them. Both agree for a depth penalty of 1 and
+ * whenever the penalized roots are integers anyway, otherwise even the
+ * order of the pronoms may differ (see DiskProfileTest).
+ * 
+ * Hand it to a reader as consumer, e.g. to
+ * ExtractSiegfriedData.streamSiegfriedOutput, or read it right away by
+ * ExtractSiegfriedData.extractDiskProfile. Instances aren't thread-safe
+ * while they're filled.
+ */
+public class DiskProfile implements Consumer<SiegfriedFile>
+{
+	/* Disk name (usually xy.ISO) */
+	public final String name;
+
+	/* The summed roots of the sizes of all files by depth. */
+	private final DepthHistogram totals = new DepthHistogram();
+
+	/* The pronom ids occuring on the disk, sorted. */
+	private int[] pronoms = new int[0];
+
+	/* For each of the pronoms above, the summed roots of its files'
+	 * sizes by depth, each shared between the matches of the file. */
+	private DepthHistogram[] shares = new DepthHistogram[0];
+
+	/* For each of the pronoms above, the number of files matching it. */
+	private int[] fileCounts = new int[0];
+
+	private int files = 0;
+
+	/* The formats of the matches of the file being added. */
+	private int[] formats = new int[4];
+
+	public DiskProfile(String name)
+	{
+		this.name = name;
+	}
+
+	/* The profile of a disk read as SiegfriedFiles. */
+	public static DiskProfile of(Disk disk)
+	{
+		DiskProfile profile = new DiskProfile(disk.name);
+		for (SiegfriedFile file : disk.files)
+		{
+			if (file != null) { profile.accept(file); }
+		}
+		return profile;
+	}
+
+	/* The profile of a disk kept column by column. */
+	public static DiskProfile of(DiskColumns disk)
+	{
+		DiskProfile profile = new DiskProfile(disk.name());
+		for (int file = 0; file < disk.fileCount(); file++)
+		{
+			int matches = disk.matchCount(file);
+			profile.reserve(matches);
+			for (int match = 0; match < matches; match++)
+			{
+				profile.formats[match] = format(disk.pronom(file, match));
+			}
+			profile.add(disk.fileSize(file), disk.depth(file), matches);
+		}
+		return profile;
+	}
+
+	@Override
+	public void accept(SiegfriedFile file)
+	{
+		accept(file, file.depth());
+	}
+
+	/* Adds the file as if it was at the given depth, e.g. relative to
+	 * a folder (see Folder.profile). */
+	void accept(SiegfriedFile file, int depth)
+	{
+		int matches = file.matchCount();
+		reserve(matches);
+		for (int match = 0; match < matches; match++)
+		{
+			formats[match] = file.getMatch(match).format();
+		}
+		add(file.fileSize(), depth, matches);
+	}
+
+	/* A match without pronom is of the unknown format
+	 * (see PronomMatch.format). */
+	private static int format(int pronom)
+	{
+		return (pronom == PronomRegistry.NO_ID ? PronomRegistry.UNKNOWN
+			: pronom);
+	}
+
+	private void reserve(int matches)
+	{
+		if (matches > formats.length)
+		{
+			formats = new int[Math.max(matches, 2 * formats.length)];
+		}
+	}
+
+	/* Adds a file whose matches' formats are the first MATCHES
+	 * entries of 'formats'. */
+	private void add(long size, int depth, int matches)
+	{
+		/* Just like PronomRelevance.penalizedSize, a file of unknown
+		 * size has no weight. */
+		int root = (int) Math.sqrt(size);
+		depth = Math.max(depth, 0);
+		files++;
+
+		totals.add(depth, root);
+
+		/* The size of the file is shared between all its matches. */
+		for (int match = 0; match < matches; match++)
+		{
+			int slot = slot(formats[match]);
+			shares[slot].add(depth, ((double) root) / matches);
+
+			/* Count the file once, however many matches of the same
+			 * pronom it has. */
+			boolean counted = false;
+			for (int previous = 0; previous < match && !counted; previous++)
+			{
+				counted = (formats[previous] == formats[match]);
+			}
+			if (!counted) { fileCounts[slot]++; }
+		}
+	}
+
+	/* Adds all files of another profile to this one, as if they had
+	 * been added one by one, LEVELS deeper (see Folder.profile). */
+	void add(DiskProfile other, int levels)
+	{
+		files += other.files;
+		totals.add(other.totals, levels);
+
+		for (int otherSlot = 0; otherSlot < other.pronoms.length; otherSlot++)
+		{
+			int slot = slot(other.pronoms[otherSlot]);
+			shares[slot].add(other.shares[otherSlot], levels);
+			fileCounts[slot] += other.fileCounts[otherSlot];
+		}
+	}
+
+	/* The index of the given pronom in 'pronoms', added if it
+	 * isn't there yet. */
+	private int slot(int pronom)
+	{
+		int slot = Arrays.binarySearch(pronoms, pronom);
+		if (slot >= 0) { return slot; }
+
+		slot = -slot - 1;
+		int count = pronoms.length;
+		pronoms = Arrays.copyOf(pronoms, count + 1);
+		shares = Arrays.copyOf(shares, count + 1);
+		fileCounts = Arrays.copyOf(fileCounts, count + 1);
+		System.arraycopy(pronoms, slot, pronoms, slot + 1, count - slot);
+		System.arraycopy(shares, slot, shares, slot + 1, count - slot);
+		System.arraycopy(fileCounts, slot, fileCounts, slot + 1, count - slot);
+		pronoms[slot] = pronom;
+		shares[slot] = new DepthHistogram();
+		fileCounts[slot] = 0;
+		return slot;
+	}
+
+	/* The number of files added so far. */
+	public int fileCount() { return files; }
+
+	/* The number of files matching the given pronom id. */
+	public int fileCount(int pronom)
+	{
+		int slot = Arrays.binarySearch(pronoms, format(pronom));
+		return (slot >= 0 ? fileCounts[slot] : 0);
+	}
+
+	/* The pronom ids occuring on the disk, in ascending order. */
+	public int[] ids() { return pronoms.clone(); }
+
+	/* The deepest depth of a file, -1 without files. */
+	public int maxDepth() { return totals.maxDepth(); }
+
+	/* The summed relevances of the matches of each pronom, given a
+	 * relevance of 1 for the whole disk. 
+	 * 
+	 * DEPTHPENALTY	see PronomRelevance.pronomRelevances */
+	public PronomValues matchRelevances(double depthPenalty)
+	{
+		double sumOfPenalizedSizes = totals.weighted(depthPenalty);
+
+		PronomValues relevances = new PronomValues();
+		for (int slot = 0; slot < pronoms.length; slot++)
+		{
+			relevances.put(pronoms[slot],
+				shares[slot].weighted(depthPenalty) / sumOfPenalizedSizes);
+		}
+		return relevances;
+	}
+}
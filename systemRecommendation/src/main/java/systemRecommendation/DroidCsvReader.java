@@ -0,0 +1,163 @@
+/* DroidCsvReader.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.function.Consumer;
+
+/* This class reads the CSV export of a DROID profile, so years of DROID
+ * reports can be used just like Siegfried outputs.
+ * 
+ * The first line names the columns, e.g.
+ * "ID","PARENT_ID","URI","FILE_PATH","NAME","METHOD","STATUS","SIZE",
+ * "TYPE","EXT","LAST_MODIFIED","EXTENSION_MISMATCH","HASH",
+ * "FORMAT_COUNT","PUID","MIME_TYPE","FORMAT_NAME","FORMAT_VERSION"
+ * 
+ * Folders have a line of their own and are skipped.
+ * If a file matches several formats, the columns PUID to FORMAT_VERSION
+ * repeat for each of them (FORMAT_COUNT times). When exported with one
+ * row per format instead, the lines of a file are merged.
+ * A file without any PUID gets a match without pronom (NO_ID), just like
+ * a Siegfried match without id.
+ */
+public class DroidCsvReader
+{
+	/* This function reads a DROID-CSV-export line by line and hands
+	 * each file to the given consumer as soon as all its lines have been
+	 * read.
+	 * 
+	 * EXCEPTION	SiegfriedFormatException if the export is flawed
+	 */
+	public static void streamSiegfriedData(Reader reader,
+		Consumer<SiegfriedFile> consumer) throws IOException
+	{
+		CsvRecordReader records = new CsvRecordReader(reader);
+
+		/* 1. Find the columns we need. */
+		String[] header = records.header();
+		if (header == null) { return; }
+
+		int idColumn = column(header, "ID");
+		int pathColumn = column(header, "FILE_PATH");
+		int uriColumn = column(header, "URI");
+		int sizeColumn = column(header, "SIZE");
+		int typeColumn = column(header, "TYPE");
+		int countColumn = column(header, "FORMAT_COUNT");
+		int puidColumn = column(header, "PUID");
+		if (puidColumn < 0)
+		{
+			throw new SiegfriedFormatException(
+				"The DROID export has no PUID column");
+		}
+
+		/* The columns of a format repeat for each further format. */
+		int stride = header.length - puidColumn;
+
+		/* 2. Read the files. */
+		SiegfriedFile current = null;
+		String currentId = null;
+		String[] record;
+
+		while ((record = records.next()) != null)
+		{
+			if (record.length == 1 && record[0].isEmpty()) { continue; }
+
+			if (field(record, typeColumn).equalsIgnoreCase("Folder"))
+			{
+				continue;
+			}
+
+			String path = field(record, pathColumn);
+			if (path.isEmpty()) { path = field(record, uriColumn); }
+			String id = (idColumn >= 0 ? field(record, idColumn) : path);
+
+			/* Further rows of the same file add further formats. */
+			if (current == null || !id.equals(currentId))
+			{
+				if (current != null) { consumer.accept(current); }
+
+				String size = field(record, sizeColumn);
+				current = new SiegfriedFile(size.isEmpty() ? -1
+					: CsvRecordReader.parseSize(size), path);
+				currentId = id;
+			}
+
+			addMatches(current, record, puidColumn, stride,
+				field(record, countColumn));
+		}
+		if (current != null) { consumer.accept(current); }
+	}
+
+	/* Adds the formats of a line to the given file. */
+	private static void addMatches(SiegfriedFile file, String[] record,
+		int puidColumn, int stride, String formatCount)
+	{
+		int count;
+		try
+		{
+			count = Math.max(1, Integer.parseInt(formatCount.trim()));
+		}
+		catch(NumberFormatException e)
+		{
+			count = 1;
+		}
+
+		for (int format = 0; format < count; format++)
+		{
+			int column = puidColumn + format * stride;
+			if (column >= record.length) { break; }
+
+			String puid = record[column].trim();
+			file.addMatch(puid.isEmpty() ? PronomMatch.of(PronomRegistry.NO_ID)
+				: PronomMatch.of(puid));
+		}
+
+		/* The export lacks the columns of the format altogether. */
+		if (file.matchCount() == 0)
+		{
+			file.addMatch(PronomMatch.of(PronomRegistry.NO_ID));
+		}
+	}
+
+	/* The index of the column with the given name or -1. */
+	private static int column(String[] header, String name)
+	{
+		for (int column = 0; column < header.length; column++)
+		{
+			if (header[column].trim().equals(name)) { return column; }
+		}
+		return -1;
+	}
+
+	/* The trimmed field of a column, empty if there's no such column. */
+	private static String field(String[] record, int column)
+	{
+		return (column >= 0 && column < record.length
+			? record[column].trim() : "");
+	}
+}
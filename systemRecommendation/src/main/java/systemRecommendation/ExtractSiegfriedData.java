@@ -27,14 +27,30 @@
 package systemRecommendation;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
 import org.json.*;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 
 /* This class is supposed to extract useful information from a Siegfried
  * analysis given as JSON.
+ * Files and streams may hold the YAML or CSV output of Siegfried as well,
+ * or even the reports of DROID and FIDO (see SiegfriedFormat).
  * 
  * Use extractSiegfriedDataFromFile(path) to get the pronoms from the file
  * at PATH.
@@ -42,11 +58,26 @@ import java.nio.file.*;
  * Use extractSiegfriedData(text) to get the pronoms from the string
  * in TEXT.
  * 
+ * Use extractSiegfriedDataFromStream(stream) to get the pronoms from
+ * a stream without ever holding the whole output in memory.
+ * 
+ * Use streamSiegfriedData(reader, consumer) to handle each file
+ * as soon as it has been read.
+ * 
+ * See MappedSiegfriedReader for reading files without decoding them
+ * to strings at all.
+ * 
+ * See SiegfriedArchive for reading gzip, zip and tar files.
+ * 
  */
 public class ExtractSiegfriedData
 {
     /* This function extracts all pronoms of all files in a directory,
      * assuming they're all Siegfried outputs.
+     * Compressed outputs and archives of outputs are read in place
+     * (see SiegfriedArchive), each entry becoming a disk of its own.
+     * Subdirectories are ignored; see SiegfriedCorpus for reading
+     * nested directories lazily.
      * 
      * DIRECTORY	the directory with the Siegfried output files.
      * 
@@ -65,31 +96,106 @@ public class ExtractSiegfriedData
     	
     	if (files == null) { return new ArrayList<Disk>(); }
     	
-    	/* 2. Extract Siegfried data from each file. */
+    	/* 2. Extract Siegfried data from each file.
+    	 * Corrupt outputs and archives are skipped. */
     	ArrayList<Disk> result = new ArrayList<Disk>();
 
     	/* For each file in the given directory... */
     	for (File file : files)
     	{
-    		/* Try to extract the pronoms from the Siegfried output. */
-    		try 
+    		if (!file.isFile()) { continue; }
+
+    		result.addAll(SiegfriedCorpus.extractDisks(
+    			folder.toPath(), file.toPath()));
+    	}
+    	return result;
+    }
+	
+	
+    /* This function does the same as extractPronoms(directory),
+     * yet the Siegfried outputs are parsed by several threads at once.
+     * 
+     * DIRECTORY	the directory with the Siegfried output files.
+     * 
+     * WORKERS		the number of threads parsing Siegfried outputs.
+     * 				With one worker or less, the outputs are parsed one
+     * 				after the other on the calling thread.
+     * 
+     * RETURNS		the disks in the same order as extractPronoms(directory)
+     * 				would return them, no matter which thread finishes
+     * 				first. Corrupt outputs are skipped.
+     */
+    public static ArrayList<Disk> extractPronoms(
+    	String directory, int workers) throws IOException
+    {
+    	if (workers <= 1) { return extractPronoms(directory); }
+
+    	/* 1. Get all files in the directoy. */
+    	File folder = new File(directory);
+    	File[] files = folder.listFiles();
+
+    	if (files == null) { return new ArrayList<Disk>(); }
+
+    	/* 2. Hand each file to the workers. */
+    	ExecutorService executor = Executors.newFixedThreadPool(workers);
+    	ArrayList<Future<List<Disk>>> futures
+    		= new ArrayList<Future<List<Disk>>>();
+
+    	try
+    	{
+    		for (File file : files)
     		{
-    			result.add(extractSiegfriedDataFromFile(
-    				directory + file.getName(), file.getName()));
+    			if (!file.isFile()) { continue; }
+    			futures.add(executor.submit(() -> SiegfriedCorpus.extractDisks(
+    				folder.toPath(), file.toPath())));
     		}
-    		/* File content is corrupted. Proceed with next file. */
-    		catch(org.json.JSONException e)
+
+    		/* 3. Collect the disks in the order of the files. */
+    		ArrayList<Disk> result = new ArrayList<Disk>();
+
+    		for (Future<List<Disk>> future : futures)
     		{
-    			continue;
+    			try
+    			{
+    				result.addAll(future.get());
+    			}
+    			catch(ExecutionException e)
+    			{
+    				if (e.getCause() instanceof IOException)
+    				{
+    					throw (IOException) e.getCause();
+    				}
+    				if (e.getCause() instanceof Error)
+    				{
+    					throw (Error) e.getCause();
+    				}
+    				throw new IllegalStateException(e.getCause());
+    			}
+    			catch(InterruptedException e)
+    			{
+    				Thread.currentThread().interrupt();
+    				throw new InterruptedIOException(
+    					"Interrupted while parsing " + directory);
+    			}
     		}
+    		return result;
+    	}
+    	finally
+    	{
+    		/* Don't keep parsing if we're giving up early. */
+    		executor.shutdownNow();
     	}
-    	return result;
     }
 	
 	
     /* This function extracts the pronoms
      * from a given file containing a Siegfried-JSON-output.
      * 
+     * The file is read as a stream, so neither its size nor the size of
+     * a string limits the Siegfried outputs that can be read.
+     * YAML and CSV outputs as well as DROID and FIDO reports are read too,
+     * telling them apart by the extension of PATH or else by their content.
+     * 
      * PATH		the path to the file containing the Siegfried-output
      * 
      * RETURNS	a disk containing a list of Siegfried files, for the given 
@@ -105,12 +211,294 @@ public class ExtractSiegfriedData
     public static Disk  extractSiegfriedDataFromFile(String path, String diskName)
         throws IOException, org.json.JSONException
     {
-    	/* 1. Read the given file and store its content as a string. */
-   	    String siegfriedJSON
-   	        = new String(Files.readAllBytes(Paths.get(path)));
+    	return extractSiegfriedDataFromFile(path, diskName, true);
+    }
+    
+    
+    /* Like extractSiegfriedDataFromFile, yet unless RETAINPATHS is set,
+     * the files of the disk only keep the depth of their directories
+     * instead of their paths, which is all the relevance of a pronom
+     * depends on. For a disk with deep, long paths, this takes a fraction
+     * of the memory.
+     */
+    public static Disk extractSiegfriedDataFromFile(String path,
+    	String diskName, boolean retainPaths)
+    	throws IOException, org.json.JSONException
+    {
+    	try (InputStream stream = Files.newInputStream(Paths.get(path)))
+    	{
+    		return collectDisk(stream, path, diskName, retainPaths);
+    	}
+    }
+    
+    
+    /* Like extractSiegfriedDataFromFile, yet the disk is kept column
+     * by column (see ColumnarDisk). Any format is read. */
+    public static ColumnarDisk extractColumnarDisk(String path,
+    	String diskName) throws IOException, org.json.JSONException
+    {
+    	try (InputStream stream = Files.newInputStream(Paths.get(path)))
+    	{
+    		ColumnarDisk.Builder columns = new ColumnarDisk.Builder();
+    		streamSiegfriedOutput(stream, path, columns);
+    		return columns.build(diskName);
+    	}
+    }
+    
+    
+    /* Like extractSiegfriedDataFromFile, yet only the profile of the disk
+     * is kept (see DiskProfile). Any format is read. */
+    public static DiskProfile extractDiskProfile(String path,
+    	String diskName) throws IOException, org.json.JSONException
+    {
+    	try (InputStream stream = Files.newInputStream(Paths.get(path)))
+    	{
+    		DiskProfile profile = new DiskProfile(diskName);
+    		streamSiegfriedOutput(stream, path, profile);
+    		return profile;
+    	}
+    }
+    
+    
+    /* This function extracts the pronoms and filesizes
+     * from a stream containing a Siegfried-output.
+     * 
+     * For a JSON output, it yields exactly the same disk as
+     * extractSiegfriedDataFromString would, yet the output is never held
+     * in memory as a whole.
+     * The format is told by the extension of the disk name or else
+     * by the content of the stream.
+     * The stream is read as UTF-8 and isn't closed.
+     * 
+     * EXCEPTION	IOException if the stream can't be read
+     * EXCEPTION	JSONException if the stream doesn't contain a valid
+     * 				Siegfried output.
+     */
+    public static Disk extractSiegfriedDataFromStream(InputStream stream,
+    	String diskName) throws IOException, org.json.JSONException
+    {
+    	return collectDisk(stream, diskName, diskName, true);
+    }
+    
+    
+    /* Reads a Siegfried output in any format and collects its files
+     * on a disk. NAME is used to tell the format.
+     * Unless RETAINPATHS is set, the paths of the files are dropped. */
+    private static Disk collectDisk(InputStream stream, String name,
+    	String diskName, boolean retainPaths)
+    	throws IOException, org.json.JSONException
+    {
+    	ArrayList<SiegfriedFile> files = new ArrayList<SiegfriedFile>();
+
+    	streamSiegfriedOutput(stream, name, retainPaths ? files::add
+    		: SiegfriedFile.withoutPaths(files::add));
+
+    	return new Disk(files.toArray(new SiegfriedFile[files.size()]),
+    		diskName);
+    }
+    
+    
+    /* This function reads a Siegfried output in JSON, YAML or CSV,
+     * or a DROID or FIDO report, and hands each file to the given
+     * consumer as soon as it has been read.
+     * 
+     * STREAM		the Siegfried output. It is read as UTF-8
+     * 				and isn't closed.
+     * 
+     * NAME			the name of the output. If its extension is one of
+     * 				the formats, the output is read in this format.
+     * 				Otherwise (or if NAME is null), the format is guessed
+     * 				from the first bytes of the output. A '.csv' may
+     * 				still turn out to be a DROID or FIDO report.
+     * 
+     * EXCEPTION	IOException if the stream can't be read
+     * EXCEPTION	JSONException if the output is flawed.
+     * 				For all other formats, this is a
+     * 				SiegfriedFormatException.
+     */
+    public static void streamSiegfriedOutput(InputStream stream, String name,
+    	Consumer<SiegfriedFile> consumer)
+    	throws IOException, org.json.JSONException
+    {
+    	if (!stream.markSupported())
+    	{
+    		stream = new BufferedInputStream(stream, 1 << 16);
+    	}
+
+    	SiegfriedFormat format = SiegfriedFormat.detect(name, stream);
+
+    	Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8);
+    	switch (format)
+    	{
+    		case YAML:
+    			SiegfriedYamlReader.streamSiegfriedData(reader, consumer);
+    			break;
+    		case CSV:
+    			SiegfriedCsvReader.streamSiegfriedData(reader, consumer);
+    			break;
+    		case DROID:
+    			DroidCsvReader.streamSiegfriedData(reader, consumer);
+    			break;
+    		case FIDO:
+    			FidoReader.streamSiegfriedData(reader, consumer);
+    			break;
+    		default:
+    			streamSiegfriedData(reader, consumer);
+    	}
+    }
+    
+    
+    /* This function reads a Siegfried-JSON-output token by token
+     * and hands each file to the given consumer as soon as its
+     * filename, filesize and matches have been read.
+     * Only a single file of the output is held in memory at a time.
+     * 
+     * READER		the Siegfried output in JSON
+     * 
+     * CONSUMER		receives the files in the order of the output
+     * 
+     * EXCEPTION	IOException if the reader fails
+     * EXCEPTION	JSONException if the output isn't in proper JSON.
+     * 				Note that the files before the flaw have already been
+     * 				handed to the consumer.
+     */
+    public static void streamSiegfriedData(Reader reader,
+    	Consumer<SiegfriedFile> consumer)
+    	throws IOException, org.json.JSONException
+    {
+    	JSONTokener tokener = new JSONTokener(reader);
+    	try
+    	{
+    		streamSiegfriedObject(tokener, consumer);
+    	}
+    	catch(org.json.JSONException e)
+    	{
+    		/* The tokener wraps failures of the reader. Those aren't
+    		 * flaws of the output, so don't let them pass as such. */
+    		if (e.getCause() instanceof IOException)
+    		{
+    			throw (IOException) e.getCause();
+    		}
+    		throw e;
+    	}
+    }
+    
+    
+    /* Reads the outermost object of a Siegfried output the same way
+     * a JSONObject would, yet only the files-list is looked at.
+     * All the other properties are parsed and dropped.
+     */
+    private static void streamSiegfriedObject(JSONTokener tokener,
+    	Consumer<SiegfriedFile> consumer)
+    {
+    	if (tokener.nextClean() != '{')
+    	{
+    		throw tokener.syntaxError("A JSONObject text must begin with '{'");
+    	}
     	
-    	/* 2. Use the function below to extract the data. */
-    	return extractSiegfriedDataFromString(siegfriedJSON, diskName);
+    	/* A JSONObject refuses duplicate keys, so we do as well. */
+    	HashSet<String> keys = new HashSet<String>();
+
+    	while (true)
+    	{
+    		char c = tokener.nextClean();
+    		if (c == 0)
+    		{
+    			throw tokener.syntaxError("A JSONObject text must end with '}'");
+    		}
+    		if (c == '}') { return; }
+    		tokener.back();
+    		
+    		String key = tokener.nextValue().toString();
+    		if (tokener.nextClean() != ':')
+    		{
+    			throw tokener.syntaxError("Expected a ':' after a key");
+    		}
+    		if (!keys.add(key))
+    		{
+    			throw tokener.syntaxError("Duplicate key \"" + key + "\"");
+    		}
+    		
+    		/* The files-list is read file by file.
+    		 * If it isn't a list, there are no files, just like in
+    		 * extractInfoFromSiegfried. */
+    		c = tokener.nextClean();
+    		tokener.back();
+    		if (key.equals("files") && c == '[')
+    		{
+    			streamSiegfriedFiles(tokener, consumer);
+    		}
+    		else
+    		{
+    			tokener.nextValue();
+    		}
+    		
+    		switch (tokener.nextClean())
+    		{
+    			case ';':
+    			case ',':
+    				if (tokener.nextClean() == '}') { return; }
+    				tokener.back();
+    				break;
+    			case '}':
+    				return;
+    			default:
+    				throw tokener.syntaxError("Expected a ',' or '}'");
+    		}
+    	}
+    }
+    
+    
+    /* Reads the files-list of a Siegfried output the same way a JSONArray
+     * would and hands over each file right after it has been read.
+     */
+    private static void streamSiegfriedFiles(JSONTokener tokener,
+    	Consumer<SiegfriedFile> consumer)
+    {
+    	if (tokener.nextClean() != '[')
+    	{
+    		throw tokener.syntaxError("A JSONArray text must start with '['");
+    	}
+
+    	char c = tokener.nextClean();
+    	if (c == 0)
+    	{
+    		throw tokener.syntaxError("Expected a ',' or ']'");
+    	}
+    	if (c == ']') { return; }
+    	tokener.back();
+
+    	for (int index = 0; true; index++)
+    	{
+    		/* Each entry has to be an object representing a single file. */
+    		c = tokener.nextClean();
+    		tokener.back();
+    		Object file = (c == ',' ? null : tokener.nextValue());
+
+    		if (!(file instanceof JSONObject))
+    		{
+    			throw new org.json.JSONException(
+    				"JSONArray[" + index + "] is not a JSONObject.");
+    		}
+    		consumer.accept(extractInfoOfSingleFile((JSONObject) file));
+    		
+    		switch (tokener.nextClean())
+    		{
+    			case ',':
+    				c = tokener.nextClean();
+    				if (c == 0)
+    				{
+    					throw tokener.syntaxError("Expected a ',' or ']'");
+    				}
+    				if (c == ']') { return; }
+    				tokener.back();
+    				break;
+    			case ']':
+    				return;
+    			default:
+    				throw tokener.syntaxError("Expected a ',' or ']'");
+    		}
+    	}
     }
 	
 	
@@ -202,14 +590,14 @@ public class ExtractSiegfriedData
 			if (stringNotExistent(file.getJSONArray("matches")
 					.getJSONObject(match), "id"))
 			{
-				/* If there's no pronom, store 'UNKNOWN' */
-				result.addMatch(new PronomMatch("UNKNOWN"));
+				/* If there's no pronom, store NO_ID. */
+				result.addMatch(PronomMatch.of(PronomRegistry.NO_ID));
 			}
 			else
 			{
 			/* Add the current match to the list of matches of
 			 * the current file. */
-			    result.addMatch(new PronomMatch(file.getJSONArray("matches")
+			    result.addMatch(PronomMatch.of(file.getJSONArray("matches")
 					.getJSONObject(match).getString("id")));
 			}
 		}
@@ -0,0 +1,91 @@
+/* FidoReader.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.function.Consumer;
+
+/* This class reads the default output of FIDO, so its reports can be
+ * used just like Siegfried outputs.
+ * 
+ * Each line reports a match or that there is none, e.g.
+ * OK,47,fmt/18,"Acrobat PDF 1.4","PDF 1.4",1024,"dir/a.pdf",...
+ * KO,12,,,,77,"dir/b.bin",,"fail"
+ * 
+ * A file matching several formats has a line for each of them.
+ * Those lines are merged into a single SiegfriedFile.
+ * A file without a match gets a match without pronom (NO_ID), just like
+ * a Siegfried match without id.
+ */
+public class FidoReader
+{
+	private static final int STATUS = 0;
+	private static final int PUID = 2;
+	private static final int SIZE = 5;
+	private static final int FILENAME = 6;
+
+	/* This function reads a FIDO output line by line and hands each file
+	 * to the given consumer as soon as all its lines have been read.
+	 * 
+	 * EXCEPTION	SiegfriedFormatException if the output is flawed
+	 */
+	public static void streamSiegfriedData(Reader reader,
+		Consumer<SiegfriedFile> consumer) throws IOException
+	{
+		CsvRecordReader records = new CsvRecordReader(reader);
+		SiegfriedFile current = null;
+		String[] record;
+
+		while ((record = records.next()) != null)
+		{
+			if (record.length == 1 && record[0].trim().isEmpty()) { continue; }
+
+			/* Ignore a byte order mark. */
+			String status = record[STATUS].replace("\uFEFF", "").trim();
+			boolean match = status.equals("OK");
+			if ((!match && !status.equals("KO")) || record.length <= FILENAME)
+			{
+				throw new SiegfriedFormatException(
+					"A line of the FIDO output is flawed");
+			}
+
+			String filename = record[FILENAME];
+			if (current == null || !filename.equals(current.getFilePath()))
+			{
+				if (current != null) { consumer.accept(current); }
+				current = new SiegfriedFile(
+					CsvRecordReader.parseSize(record[SIZE]), filename);
+			}
+
+			String puid = (match ? record[PUID].trim() : "");
+			current.addMatch(puid.isEmpty()
+				? PronomMatch.of(PronomRegistry.NO_ID) : PronomMatch.of(puid));
+		}
+		if (current != null) { consumer.accept(current); }
+	}
+}
@@ -26,37 +26,84 @@
 
 package systemRecommendation;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
+/* A folder of a disk, a node of the trie of the paths of its files
+ * (see Disk.orderFiles). Each folder exists once, however many files
+ * share it as a prefix of their paths.
+ * 
+ * Disks may have hundreds of thousands of folders, so a folder is kept
+ * small: its name is interned and thus shared with all folders of the
+ * same name, its subfolders are kept in an array sorted by name and its
+ * files in an array of their own. Both arrays grow as needed.
+ * 
+ * Each folder knows its parent. Adding a file adds its size to the
+ * folder and all folders above it, by how many levels below each of them
+ * it is. The size of a folder for any depth penalty is then a sum over
+ * those levels, without visiting any subfolder.
+ * 
+ * A folder can be scored like the profile of a disk of its own
+ * (see profile()). The profile is only built when it's first asked for,
+ * by a single walk of the folders below, so trees nobody scores by
+ * folder don't pay for it. Once built, a folder is scored in time
+ * depending on its pronoms rather than its files. Like any profile,
+ * this may differ from scoring the files themselves (see DiskProfile).
+ * 
+ * To walk a tree, use preOrder, postOrder or accept(Visitor). None of
+ * them recurses, so trees of any depth can be walked.
+ * 
+ * A tree of folders is built by a single thread. Trees don't share any
+ * state, so different disks may be built at the same time.
+ */
 public class Folder {
 	
+	private static final Folder[] NO_FOLDERS = new Folder[0];
+	private static final SiegfriedFile[] NO_FILES = new SiegfriedFile[0];
+
 	/* Name of the folder. */
 	private final String name;
 	
-	/* Size of the folder in bytes. */
-	private double size = -1;
+	/* The folder containing this one, null for the root of a tree.
+	 * Only changed when trees are merged. */
+	private Folder parent;
 	
-	/* Contains all subfolders of this folder. */
-	private HashMap<String, Folder> folders = new HashMap<String, Folder>();
+	/* The number of folders above this one. */
+	private final int level;
 	
-	/* Contains all files of this folder that are NOT in a subfolder. */
-	private ArrayList<SiegfriedFile> files = new ArrayList<SiegfriedFile>();
-
-	/* Tracks changes in the file system. Whenever a file is added somewhere,
-	 * this variable will be incremented. */
-    private static int journal = 0;
-    
-    /* This is the value the journal held the last time the size 
-     * of this folder was calculated.
-     * If it is smaller than the current value of journal,
-     * a file has been added and the folder size has to be recalculated.
-     */
-    private int fileSystemVersion = -1;
+	/* The summed sizes of all files of this folder and its subfolders
+	 * in bytes, by how many levels below this folder they are. */
+	private final DepthHistogram sizes = new DepthHistogram();
+	
+	/* The profile of all files of this folder and its subfolders,
+	 * null until it's asked for and again once a file is added. */
+	private DiskProfile profile = null;
+	
+	/* Contains all subfolders of this folder, sorted by name.
+	 * Only the first folderCount entries are used. */
+	private Folder[] folders = NO_FOLDERS;
+	private int folderCount = 0;
+	
+	/* Contains all files of this folder that are NOT in a subfolder.
+	 * Only the first fileCount entries are used. */
+	private SiegfriedFile[] files = NO_FILES;
+	private int fileCount = 0;
 
+	/* Creates the root of a tree of folders. */
 	public Folder(String name)
 	{
-		this.name = name;
+		this(name, null);
+	}
+	
+	private Folder(String name, Folder parent)
+	{
+		this.name = name.intern();
+		this.parent = parent;
+		this.level = (parent == null ? 0 : parent.level + 1);
 	}
 	
 	/* Adds a subfolder and returns it.
@@ -64,65 +111,440 @@ public class Folder {
 	 */
     public Folder addFolder(String foldername)
     {
-    	/* Get the folder in case it already exists. */
-    	Folder folder = folders.get(foldername);
-    	
-    	/* If it doesn't, create a new one. */
-    	if (folder == null)
+    	return addFolder(foldername, 0, foldername.length());
+    }
+    
+    /* Same as above for the name at PATH[START, END), which is only
+     * copied if the folder doesn't exist yet. */
+    private Folder addFolder(String path, int start, int end)
+    {
+    	int index = indexOf(path, start, end);
+    	if (index >= 0) { return folders[index]; }
+
+    	/* It doesn't exist yet, insert a new one. */
+    	index = -index - 1;
+    	if (folderCount == folders.length)
     	{
-    		folders.put(foldername, new Folder(foldername));
-    		folder = folders.get(foldername);
+    		folders = Arrays.copyOf(folders, Math.max(2, 2 * folderCount));
     	}
+    	System.arraycopy(folders, index, folders, index + 1,
+    		folderCount - index);
+    	folders[index] = new Folder(path.substring(start, end), this);
+    	folderCount++;
+    	return folders[index];
+    }
+    
+    /* Returns the folder holding the file at the given path, adding it
+     * and all folders in between if necessary.
+     * 
+     * The path is scanned from slash to slash, just like
+     * SiegfriedFile.getDirectory splits it, yet empty names aren't
+     * folders. Without a path, the file belongs to this folder.
+     */
+    public Folder addPath(String path)
+    {
+    	if (path == null) { return this; }
+
+    	/* Like split, ignore trailing slashes. The filename follows
+    	 * the last slash. */
+    	int end = path.length();
+    	while (end > 0 && path.charAt(end - 1) == '/') { end--; }
+    	int directoryEnd = (end > 0 ? path.lastIndexOf('/', end - 1) : -1);
 
+    	Folder folder = this;
+    	int start = 0;
+    	while (start < directoryEnd)
+    	{
+    		int slash = path.indexOf('/', start);
+    		if (slash > start)
+    		{
+    			folder = folder.addFolder(path, start, slash);
+    		}
+    		start = slash + 1;
+    	}
     	return folder;
     }
     
-    /* Adds a file to this folder. */
+    /* Adds a file to this folder. Its size is added to this folder
+     * and all folders above. */
     public void addFile(SiegfriedFile file)
     {
-    	files.add(file);
-    	journal++;
+    	if (fileCount == files.length)
+    	{
+    		files = Arrays.copyOf(files, Math.max(4, 2 * fileCount));
+    	}
+    	files[fileCount++] = file;
+
+    	for (Folder folder = this; folder != null; folder = folder.parent)
+    	{
+    		folder.sizes.add(level - folder.level, file.fileSize());
+    		folder.profile = null;
+    	}
     }
     
     public String name() { return name; }
     
-    public Folder getFolder(String name) { return folders.get(name); }
+    /* The folder containing this one, null for the root. */
+    public Folder parent() { return parent; }
+    
+    /* The profile of all files of this folder and its subfolders,
+     * with their depths relative to this folder, i.e. DiskProfile.of a
+     * disk of just these files with their paths relative to the folder.
+     * Don't add files to it, add them to the folder instead.
+     * 
+     * It's built by walking the folders below once, each after its
+     * subfolders, and kept until a file is added. Subfolders whose
+     * profiles have been asked for before aren't walked again. */
+    public DiskProfile profile()
+    {
+    	if (profile != null) { return profile; }
+
+    	/* The profiles of the folders walked whose parent is still to
+    	 * come, the latest last. */
+    	ArrayDeque<DiskProfile> walked = new ArrayDeque<DiskProfile>();
+    	accept(new Visitor()
+    	{
+    		@Override
+    		public boolean preVisit(Folder folder)
+    		{
+    			return folder.profile == null;
+    		}
+
+    		@Override
+    		public void postVisit(Folder folder)
+    		{
+    			DiskProfile subtree = folder.profile;
+    			if (subtree == null)
+    			{
+    				/* Within the folder, its own files are as deep as the
+    				 * files at the root of a disk, those of its subfolders
+    				 * a level deeper than within them. */
+    				subtree = new DiskProfile(folder.name);
+    				for (int i = 0; i < folder.fileCount; i++)
+    				{
+    					subtree.accept(folder.files[i], 1);
+    				}
+    				for (int i = 0; i < folder.folderCount; i++)
+    				{
+    					subtree.add(walked.removeLast(), 1);
+    				}
+    			}
+    			walked.addLast(subtree);
+    		}
+    	});
+    	profile = walked.removeLast();
+    	return profile;
+    }
     
-    public HashMap<String, Folder> folders() { return folders; }
+    /* Returns the folder at the given path below this one, or null if
+     * there's none. Like addPath, yet each name, the last one included,
+     * is a folder, and no folder is added. */
+    public Folder getPath(String path)
+    {
+    	Folder folder = this;
+    	int start = 0;
+    	while (folder != null && start < path.length())
+    	{
+    		int slash = path.indexOf('/', start);
+    		if (slash < 0) { slash = path.length(); }
+    		if (slash > start)
+    		{
+    			int index = folder.indexOf(path, start, slash);
+    			folder = (index >= 0 ? folder.folders[index] : null);
+    		}
+    		start = slash + 1;
+    	}
+    	return folder;
+    }
     
-    public ArrayList<SiegfriedFile> files() { return files; }
+    public Folder getFolder(String name)
+    {
+    	int index = indexOf(name, 0, name.length());
+    	return (index >= 0 ? folders[index] : null);
+    }
     
-    /* Returns the size of this folder and all its content.
+    /* The number of subfolders. */
+    public int folderCount() { return folderCount; }
+    
+    /* The subfolder of the given index, in the order of their names. */
+    public Folder folder(int index)
+    {
+    	if (index >= folderCount)
+    	{
+    		throw new IndexOutOfBoundsException("Folder " + index);
+    	}
+    	return folders[index];
+    }
+    
+    /* The number of files that are NOT in a subfolder. */
+    public int fileCount() { return fileCount; }
+    
+    /* The file of the given index, in the order they've been added. */
+    public SiegfriedFile file(int index)
+    {
+    	if (index >= fileCount)
+    	{
+    		throw new IndexOutOfBoundsException("File " + index);
+    	}
+    	return files[index];
+    }
+    
+    /* The subfolders by name. The map is a copy, adding folders to it
+     * doesn't add them to this folder. */
+    public HashMap<String, Folder> folders()
+    {
+    	HashMap<String, Folder> map = new HashMap<String, Folder>();
+    	for (int i = 0; i < folderCount; i++)
+    	{
+    		map.put(folders[i].name, folders[i]);
+    	}
+    	return map;
+    }
+    
+    /* The files that are NOT in a subfolder. The list is a copy, adding
+     * files to it doesn't add them to this folder. */
+    public ArrayList<SiegfriedFile> files()
+    {
+    	return new ArrayList<SiegfriedFile>(
+    		Arrays.asList(files).subList(0, fileCount));
+    }
+    
+    /* Adds all folders and files of the tree SECOND to the tree FIRST
+     * and returns FIRST, just as if the files of SECOND had been added
+     * to FIRST after its own ones, up to rounding. SECOND mustn't be used
+     * anymore, some of its folders become part of FIRST.
      * 
-     * Use a value betwenn 0 and 1 for depthPenalty.
-     * The lower, the larger the size penalty for subfolders.
+     * Both have to be roots. The sizes are merged as a whole, so this
+     * takes time depending on the folders rather than the files.
+     * Profiles are dropped where folders are merged and built anew when
+     * they're asked for. Used to build the tree of a disk in parallel (see
+     * Disk.orderFiles).
      */
-    public double size(double depthPenalty)
+    static Folder merge(Folder first, Folder second)
     {
-    	/* If no file has been added anywhere since the last size calculation
-    	 * of this folder, we don't have to recalculate it. */
-    	if (journal == fileSystemVersion) { return size; }
-    	
-    	/* A file has been added lately.
-    	 * Recalculate the folder size. */
-    	size = 0;
-
-    	/* Sum up the sizes of all subfolders. */
-    	for (Folder folder : folders.values())
+    	if (first.parent != null || second.parent != null)
     	{
-    		size += depthPenalty * folder.size(depthPenalty);
+    		throw new IllegalArgumentException("Only roots can be merged.");
     	}
 
-    	for (SiegfriedFile file : files)
+    	/* Pairs of folders of the same path, the latter to be added to the
+    	 * former, kept on a stack of their own instead of recursing. */
+    	ArrayDeque<Folder> pairs = new ArrayDeque<Folder>();
+    	pairs.push(first);
+    	pairs.push(second);
+    	while (!pairs.isEmpty())
     	{
-    		size += file.fileSize();
+    		Folder other = pairs.pop();
+    		pairs.pop().add(other, pairs);
     	}
+    	return first;
+    }
+    
+    /* Adds the content of OTHER, a folder at the same level, to this one.
+     * Subfolders of the same name are pushed to PAIRS to be merged. */
+    private void add(Folder other, ArrayDeque<Folder> pairs)
+    {
+    	/* The files of the other folder follow the own ones. */
+    	if (fileCount + other.fileCount > files.length)
+    	{
+    		files = Arrays.copyOf(files, fileCount + other.fileCount);
+    	}
+    	System.arraycopy(other.files, 0, files, fileCount, other.fileCount);
+    	fileCount += other.fileCount;
 
-    	/* The folder size doesn't have to be recalculated
-    	 * until another file will be added. */
-    	fileSystemVersion = journal;
+    	/* The sums of the other folder cover its subfolders, too. */
+    	sizes.add(other.sizes);
+    	profile = null;
 
-    	return size;
+    	/* Merge subfolders of the same name, take over the others. */
+    	for (int i = 0; i < other.folderCount; i++)
+    	{
+    		Folder subfolder = other.folders[i];
+    		int index = indexOf(subfolder.name, 0, subfolder.name.length());
+    		if (index >= 0)
+    		{
+    			pairs.push(folders[index]);
+    			pairs.push(subfolder);
+    			continue;
+    		}
+    		index = -index - 1;
+    		if (folderCount == folders.length)
+    		{
+    			folders = Arrays.copyOf(folders, Math.max(2, 2 * folderCount));
+    		}
+    		System.arraycopy(folders, index, folders, index + 1,
+    			folderCount - index);
+    		folders[index] = subfolder;
+    		folderCount++;
+    		subfolder.parent = this;
+    	}
+    }
+    
+    /* The index of the subfolder named PATH[START, END), or, if there's
+     * none, (-(insertion point) - 1) just like Arrays.binarySearch. */
+    private int indexOf(String path, int start, int end)
+    {
+    	int low = 0;
+    	int high = folderCount - 1;
+    	while (low <= high)
+    	{
+    		int middle = (low + high) >>> 1;
+    		int comparison = compare(folders[middle].name, path, start, end);
+    		if (comparison < 0) { low = middle + 1; }
+    		else if (comparison > 0) { high = middle - 1; }
+    		else { return middle; }
+    	}
+    	return -(low + 1);
+    }
+    
+    /* Compares NAME with PATH[START, END) like String.compareTo,
+     * without copying the latter. */
+    private static int compare(String name, String path, int start, int end)
+    {
+    	int length = Math.min(name.length(), end - start);
+    	for (int i = 0; i < length; i++)
+    	{
+    		int difference = name.charAt(i) - path.charAt(start + i);
+    		if (difference != 0) { return difference; }
+    	}
+    	return name.length() - (end - start);
+    }
+    
+    /* Visits this folder and all folders below it, see Visitor.
+     * The folders are walked by an explicit stack rather than recursion,
+     * so however deep the tree, the call stack is not. */
+    public void accept(Visitor visitor)
+    {
+    	Folder[] stack = new Folder[16];
+    	int[] next = new int[16];
+    	int top = 0;
+    	stack[0] = this;
+    	next[0] = (visitor.preVisit(this) ? 0 : folderCount);
+
+    	while (top >= 0)
+    	{
+    		Folder folder = stack[top];
+    		if (next[top] < folder.folderCount)
+    		{
+    			/* Descend to the next subfolder. */
+    			Folder subfolder = folder.folders[next[top]++];
+    			if (++top == stack.length)
+    			{
+    				stack = Arrays.copyOf(stack, 2 * top);
+    				next = Arrays.copyOf(next, 2 * top);
+    			}
+    			stack[top] = subfolder;
+    			next[top] = (visitor.preVisit(subfolder) ? 0
+    				: subfolder.folderCount);
+    		}
+    		else
+    		{
+    			/* All subfolders are done. */
+    			stack[top--] = null;
+    			visitor.postVisit(folder);
+    		}
+    	}
+    }
+    
+    /* Iterates over this folder and all folders below it, each folder
+     * before its subfolders, in the order of their names. */
+    public Iterator<Folder> preOrder()
+    {
+    	return new FolderIterator(this, true);
+    }
+    
+    /* Iterates over this folder and all folders below it, each folder
+     * after its subfolders, in the order of their names. */
+    public Iterator<Folder> postOrder()
+    {
+    	return new FolderIterator(this, false);
+    }
+    
+    /* Visits the folders of a tree, see accept. */
+    public interface Visitor
+    {
+    	/* Called before the subfolders of FOLDER are visited.
+    	 * Return false to skip them. */
+    	default boolean preVisit(Folder folder) { return true; }
+    	
+    	/* Called after the subfolders of FOLDER have been visited,
+    	 * or skipped. */
+    	default void postVisit(Folder folder) {}
+    }
+    
+    /* Walks a tree like accept, returning the folders one by one.
+     * The tree mustn't change meanwhile. */
+    private static final class FolderIterator implements Iterator<Folder>
+    {
+    	private final boolean preOrder;
+    	
+    	/* The folders from the root down to the current one, and the
+    	 * index of the next subfolder to descend to for each of them. */
+    	private Folder[] stack = new Folder[16];
+    	private int[] next = new int[16];
+    	private int top = 0;
+    	
+    	private FolderIterator(Folder root, boolean preOrder)
+    	{
+    		this.preOrder = preOrder;
+    		stack[0] = root;
+    	}
+    	
+    	@Override
+    	public boolean hasNext() { return top >= 0; }
+    	
+    	@Override
+    	public Folder next()
+    	{
+    		if (top < 0) { throw new NoSuchElementException(); }
+    		
+    		if (preOrder)
+    		{
+    			/* Return the folder on top, then move on to the next one:
+    			 * its first subfolder, else the next subfolder of the
+    			 * closest folder above that has one left. */
+    			Folder folder = stack[top];
+    			while (top >= 0 && next[top] == stack[top].folderCount)
+    			{
+    				stack[top--] = null;
+    			}
+    			if (top >= 0) { push(stack[top].folders[next[top]++]); }
+    			return folder;
+    		}
+    		
+    		/* Descend to the deepest first subfolder not returned yet,
+    		 * return it and leave it. */
+    		while (next[top] < stack[top].folderCount)
+    		{
+    			push(stack[top].folders[next[top]++]);
+    		}
+    		Folder folder = stack[top];
+    		stack[top--] = null;
+    		return folder;
+    	}
+    	
+    	private void push(Folder folder)
+    	{
+    		if (++top == stack.length)
+    		{
+    			stack = Arrays.copyOf(stack, 2 * top);
+    			next = Arrays.copyOf(next, 2 * top);
+    		}
+    		stack[top] = folder;
+    		next[top] = 0;
+    	}
+    }
+    
+    /* Returns the size of this folder and all its content.
+     * 
+     * Use a value betwenn 0 and 1 for depthPenalty.
+     * The lower, the larger the size penalty for subfolders.
+     */
+    public double size(double depthPenalty)
+    {
+    	/* The files of each level below are penalized once more.
+    	 * No subfolder is visited. */
+    	return sizes.weighted(depthPenalty);
     }
 
 }
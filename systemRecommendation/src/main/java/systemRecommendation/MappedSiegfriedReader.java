@@ -0,0 +1,715 @@
+/* MappedSiegfriedReader.java
+ *
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+import org.json.JSONException;
+
+/* This class reads Siegfried-JSON-outputs by mapping the file into memory
+ * and scanning its bytes directly.
+ *
+ * Unlike ExtractSiegfriedData, the output is never decoded to a string.
+ * Only the filename, the filesize and the ids of the matches of each file
+ * are turned into Java values, everything else is skipped byte by byte.
+ * For well-formed output as Siegfried writes it, the disks are the same
+ * as the ones of ExtractSiegfriedData. Flawed output may be read
+ * differently, though. Skipped values are only checked for their
+ * structure (brackets and quotes), not for being proper JSON.
+ * Duplicate keys aren't refused, the last one counts. A comma right
+ * before a closing bracket is refused, while the DOM parser allows it.
+ *
+ * Use extractSiegfriedDataFromFile(path, name) to get a disk
+ * from the file at PATH, or extractColumnarDisk(path, name) to get it
+ * column by column without creating a SiegfriedFile for each file.
+ *
+ * Run main(paths) to compare the throughput of this reader with
+ * ExtractSiegfriedData.extractSiegfriedDataFromString.
+ */
+public class MappedSiegfriedReader
+{
+	/* Number of bytes mapped at once. A file larger than this is mapped
+	 * window by window, since a single mapping can't exceed 2 GB. */
+	private static final long WINDOW = 1L << 28;
+
+	private static final byte[] FILES = bytes("files");
+	private static final byte[] FILENAME = bytes("filename");
+	private static final byte[] FILESIZE = bytes("filesize");
+	private static final byte[] MATCHES = bytes("matches");
+	private static final byte[] ID = bytes("id");
+
+	/* Passes of both readers over a file before they're timed,
+	 * so the JIT has compiled them and the file is cached. */
+	private static final int WARM_UP = 3;
+
+	/* Timed passes of each reader over a file. */
+	private static final int RUNS = 6;
+
+	private final FileChannel channel;
+	private final long length;
+
+	/* The currently mapped part of the file and its offset in the file. */
+	private MappedByteBuffer window;
+	private long windowStart = 0;
+
+	/* Offset of the next byte to read. */
+	private long position = 0;
+
+	/* Scratch space for keys and for the strings we actually need. */
+	private byte[] scratch = new byte[256];
+	private int scratchLength = 0;
+	private boolean scratchEscaped = false;
+	private final StringBuilder builder = new StringBuilder();
+
+	/* The ids of the matches of the current file. They are collected
+	 * first since the filename may come after the matches. */
+	private final ArrayList<String> ids = new ArrayList<String>();
+
+	/* The path and size of the current file. */
+	private String filePath;
+	private int fileSize;
+
+	/* If set, the files are added to these columns instead of being
+	 * handed to the consumer. */
+	private ColumnarDisk.Builder columns = null;
+
+	private MappedSiegfriedReader(FileChannel channel) throws IOException
+	{
+		this.channel = channel;
+		length = channel.size();
+		window = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+			Math.min(WINDOW, length));
+	}
+
+	/* This function extracts the pronoms and filesizes from a file
+	 * containing a Siegfried-JSON-output.
+	 *
+	 * RETURNS		the same disk as
+	 * 				ExtractSiegfriedData.extractSiegfriedDataFromFile
+	 * 				if the output is well-formed (see above)
+	 *
+	 * EXCEPTION	IOException if the file doesn't exist or isn't accessible
+	 * EXCEPTION	JSONException if the structure of the output is flawed
+	 */
+	public static Disk extractSiegfriedDataFromFile(String path,
+		String diskName) throws IOException, JSONException
+	{
+		return extractSiegfriedDataFromFile(path, diskName, true);
+	}
+
+	/* Like extractSiegfriedDataFromFile, yet unless RETAINPATHS is set,
+	 * the files only keep the depth of their directories,
+	 * see ExtractSiegfriedData.extractSiegfriedDataFromFile. */
+	public static Disk extractSiegfriedDataFromFile(String path,
+		String diskName, boolean retainPaths) throws IOException, JSONException
+	{
+		ArrayList<SiegfriedFile> files = new ArrayList<SiegfriedFile>();
+
+		streamSiegfriedData(Paths.get(path), retainPaths ? files::add
+			: SiegfriedFile.withoutPaths(files::add));
+
+		return new Disk(files.toArray(new SiegfriedFile[files.size()]),
+			diskName);
+	}
+
+	/* Same as extractSiegfriedDataFromFile, yet the disk is kept column
+	 * by column. The files are added to the columns right away, so no
+	 * SiegfriedFile or PronomMatch is created at all. */
+	public static ColumnarDisk extractColumnarDisk(String path,
+		String diskName) throws IOException, JSONException
+	{
+		ColumnarDisk.Builder columns = new ColumnarDisk.Builder();
+		try (FileChannel channel
+			= FileChannel.open(Paths.get(path), StandardOpenOption.READ))
+		{
+			MappedSiegfriedReader reader = new MappedSiegfriedReader(channel);
+			reader.columns = columns;
+			reader.readObject(null);
+		}
+		catch(UncheckedIOException e)
+		{
+			/* Mapping a later window of the file failed. */
+			throw e.getCause();
+		}
+		return columns.build(diskName);
+	}
+
+	/* Same as extractSiegfriedDataFromFile, yet only the profile of the
+	 * disk is kept (see DiskProfile). */
+	public static DiskProfile extractDiskProfile(String path,
+		String diskName) throws IOException, JSONException
+	{
+		DiskProfile profile = new DiskProfile(diskName);
+		streamSiegfriedData(Paths.get(path), profile);
+		return profile;
+	}
+
+	/* This function maps the file at PATH and hands each file of the
+	 * Siegfried output to the given consumer as soon as it has been read.
+	 */
+	public static void streamSiegfriedData(Path path,
+		Consumer<SiegfriedFile> consumer) throws IOException, JSONException
+	{
+		try (FileChannel channel
+			= FileChannel.open(path, StandardOpenOption.READ))
+		{
+			new MappedSiegfriedReader(channel).readObject(consumer);
+		}
+		catch(UncheckedIOException e)
+		{
+			/* Mapping a later window of the file failed. */
+			throw e.getCause();
+		}
+	}
+
+	/* Compares the throughput of this reader with the one of
+	 * ExtractSiegfriedData.extractSiegfriedDataFromString.
+	 * Both readers are warmed up first. Then they take turns at being
+	 * timed first, and the fastest pass of each counts.
+	 *
+	 * ARGS		paths to files with Siegfried outputs
+	 *
+	 * RETURN	Prints the throughput of both readers in MB/s
+	 * 			for each file to standard output.
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		for (String path : args)
+		{
+			double megabytes = Files.size(Paths.get(path)) / 1048576.0;
+
+			Disk mapped = null;
+			Disk string = null;
+			for (int pass = 0; pass < WARM_UP; pass++)
+			{
+				mapped = read(path, true);
+				string = read(path, false);
+			}
+
+			double mappedSeconds = Double.MAX_VALUE;
+			double stringSeconds = Double.MAX_VALUE;
+			for (int pass = 0; pass < RUNS; pass++)
+			{
+				/* Every other pass, the mapped reader goes first. */
+				for (int turn = 0; turn < 2; turn++)
+				{
+					boolean mappedTurn = ((pass + turn) % 2 == 0);
+
+					long start = System.nanoTime();
+					read(path, mappedTurn);
+					double seconds = (System.nanoTime() - start) / 1e9;
+
+					if (mappedTurn)
+					{
+						mappedSeconds = Math.min(mappedSeconds, seconds);
+					}
+					else
+					{
+						stringSeconds = Math.min(stringSeconds, seconds);
+					}
+				}
+			}
+
+			System.out.println(path + ": " + mapped.files.length + " files, "
+				+ String.format("%.1f", megabytes) + " MB");
+			System.out.println("    mapped bytes: "
+				+ String.format("%.1f", megabytes / mappedSeconds) + " MB/s");
+			System.out.println("    string + DOM: "
+				+ String.format("%.1f", megabytes / stringSeconds) + " MB/s"
+				+ " (" + string.files.length + " files)");
+		}
+	}
+
+	/* Reads the file at PATH by this reader if MAPPED,
+	 * by ExtractSiegfriedData.extractSiegfriedDataFromString otherwise. */
+	private static Disk read(String path, boolean mapped) throws IOException
+	{
+		if (mapped) { return extractSiegfriedDataFromFile(path, path); }
+
+		return ExtractSiegfriedData.extractSiegfriedDataFromString(
+			new String(Files.readAllBytes(Paths.get(path)),
+				StandardCharsets.UTF_8), path);
+	}
+
+
+	/* Reads the outermost object and its files-list.
+	 * Everything but the files-list is skipped. */
+	private void readObject(Consumer<SiegfriedFile> consumer)
+	{
+		expect('{');
+		if (peekClean() == '}')
+		{
+			position++;
+			return;
+		}
+
+		while (true)
+		{
+			boolean files = readKey(FILES);
+			expect(':');
+
+			if (files && peekClean() == '[')
+			{
+				position++;
+				readFiles(consumer);
+			}
+			else
+			{
+				skipValue();
+			}
+
+			int c = nextClean();
+			if (c == '}') { return; }
+			if (c != ',') { throw error("Expected a ',' or '}'"); }
+		}
+	}
+
+	/* Reads all entries of the files-list. The '[' has been read. */
+	private void readFiles(Consumer<SiegfriedFile> consumer)
+	{
+		if (peekClean() == ']')
+		{
+			position++;
+			return;
+		}
+
+		while (true)
+		{
+			readFile();
+			if (columns != null)
+			{
+				columns.addFile(fileSize, SiegfriedFile.depth(filePath));
+				for (String id : ids)
+				{
+					columns.addMatch(PronomRegistry.id(id));
+				}
+			}
+			else
+			{
+				SiegfriedFile file = new SiegfriedFile(fileSize, filePath);
+				for (String id : ids)
+				{
+					file.addMatch(PronomMatch.of(id));
+				}
+				consumer.accept(file);
+			}
+
+			int c = nextClean();
+			if (c == ']') { return; }
+			if (c != ',') { throw error("Expected a ',' or ']'"); }
+		}
+	}
+
+	/* Reads a single entry of the files-list, just like
+	 * ExtractSiegfriedData does. Its path, size and the ids of its
+	 * matches are kept in filePath, fileSize and ids. */
+	private void readFile()
+	{
+		expect('{');
+
+		filePath = "";
+		fileSize = -1;
+		ids.clear();
+
+		if (peekClean() == '}') { position++; }
+		else
+		{
+			while (true)
+			{
+				readKey(null);
+				expect(':');
+
+				if (scratchEquals(FILENAME))
+				{
+					String value = readStringOrNull();
+					filePath = (value == null ? "" : value);
+				}
+				else if (scratchEquals(FILESIZE))
+				{
+					fileSize = readInt();
+				}
+				else if (scratchEquals(MATCHES))
+				{
+					readMatches();
+				}
+				else
+				{
+					skipValue();
+				}
+
+				int c = nextClean();
+				if (c == '}') { break; }
+				if (c != ',') { throw error("Expected a ',' or '}'"); }
+			}
+		}
+	}
+
+	/* Reads the matches of a file and collects their ids.
+	 * If the matches aren't a list, there are no matches. */
+	private void readMatches()
+	{
+		if (peekClean() != '[')
+		{
+			skipValue();
+			return;
+		}
+		position++;
+		if (peekClean() == ']')
+		{
+			position++;
+			return;
+		}
+
+		while (true)
+		{
+			expect('{');
+
+			/* If there's no pronom, the id stays null (NO_ID). */
+			String id = null;
+
+			if (peekClean() == '}') { position++; }
+			else
+			{
+				while (true)
+				{
+					boolean isId = readKey(ID);
+					expect(':');
+
+					if (isId) { id = readStringOrNull(); }
+					else { skipValue(); }
+
+					int c = nextClean();
+					if (c == '}') { break; }
+					if (c != ',') { throw error("Expected a ',' or '}'"); }
+				}
+			}
+			ids.add(id);
+
+			int c = nextClean();
+			if (c == ']') { return; }
+			if (c != ',') { throw error("Expected a ',' or ']'"); }
+		}
+	}
+
+	/* Reads a key into the scratch space.
+	 * Returns whether it equals the expected key (if any). */
+	private boolean readKey(byte[] expected)
+	{
+		expect('"');
+		readStringBytes();
+		return expected != null && scratchEquals(expected);
+	}
+
+	/* Reads a string value. Any other value is skipped and yields null. */
+	private String readStringOrNull()
+	{
+		if (peekClean() != '"')
+		{
+			skipValue();
+			return null;
+		}
+		position++;
+		readStringBytes();
+		return scratchString();
+	}
+
+	/* Reads a number the way JSONObject.getInt would.
+	 * If the value isn't a number, -1 is returned. */
+	private int readInt()
+	{
+		int c = peekClean();
+		if (c == '"')
+		{
+			/* JSONObject.getInt parses strings as well. */
+			String value = readStringOrNull();
+			try
+			{
+				return Integer.parseInt(value);
+			}
+			catch(NumberFormatException e)
+			{
+				return -1;
+			}
+		}
+		if (c == '{' || c == '[')
+		{
+			skipValue();
+			return -1;
+		}
+
+		/* Collect the literal. */
+		scratchLength = 0;
+		while (true)
+		{
+			c = peek();
+			if (c < 0 || c <= ' ' || c == ',' || c == '}' || c == ']')
+			{
+				break;
+			}
+			append((byte) c);
+			position++;
+		}
+		if (scratchLength == 0) { throw error("Missing value"); }
+
+		String literal
+			= new String(scratch, 0, scratchLength, StandardCharsets.US_ASCII);
+		try
+		{
+			if (literal.indexOf('.') >= 0 || literal.indexOf('e') >= 0
+				|| literal.indexOf('E') >= 0)
+			{
+				return (int) Double.parseDouble(literal);
+			}
+			return new java.math.BigInteger(literal).intValue();
+		}
+		catch(NumberFormatException e)
+		{
+			/* true, false, null or anything else. */
+			return -1;
+		}
+	}
+
+	/* Skips any value without turning it into anything. */
+	private void skipValue()
+	{
+		int c = nextClean();
+		if (c == '"')
+		{
+			skipString();
+			return;
+		}
+		if (c == '{' || c == '[')
+		{
+			int depth = 1;
+			while (depth > 0)
+			{
+				c = next();
+				if (c == '"') { skipString(); }
+				else if (c == '{' || c == '[') { depth++; }
+				else if (c == '}' || c == ']') { depth--; }
+			}
+			return;
+		}
+		if (c == ',' || c == '}' || c == ']') { throw error("Missing value"); }
+
+		/* A literal like a number, true, false or null. */
+		while (true)
+		{
+			c = peek();
+			if (c < 0 || c <= ' ' || c == ',' || c == '}' || c == ']') { return; }
+			position++;
+		}
+	}
+
+	/* Skips the rest of a string. The '"' has been read. */
+	private void skipString()
+	{
+		while (true)
+		{
+			int c = next();
+			if (c == '"') { return; }
+			if (c == '\\') { next(); }
+		}
+	}
+
+	/* Reads the rest of a string into the scratch space, resolving escapes.
+	 * The '"' has been read.
+	 * Escaped characters are collected in the builder, so the scratch space
+	 * only ever holds raw UTF-8 bytes. */
+	private void readStringBytes()
+	{
+		scratchLength = 0;
+		scratchEscaped = false;
+
+		while (true)
+		{
+			int c = next();
+			if (c == '"') { return; }
+			if (c == '\n' || c == '\r') { throw error("Unterminated string"); }
+			if (c != '\\')
+			{
+				append((byte) c);
+				continue;
+			}
+
+			/* Move what we have so far into the builder. */
+			if (!scratchEscaped)
+			{
+				builder.setLength(0);
+				scratchEscaped = true;
+			}
+			builder.append(new String(scratch, 0, scratchLength,
+				StandardCharsets.UTF_8));
+			scratchLength = 0;
+
+			c = next();
+			switch (c)
+			{
+				case 'b': builder.append('\b'); break;
+				case 't': builder.append('\t'); break;
+				case 'n': builder.append('\n'); break;
+				case 'f': builder.append('\f'); break;
+				case 'r': builder.append('\r'); break;
+				case 'u':
+					int code = 0;
+					for (int i = 0; i < 4; i++)
+					{
+						int digit = Character.digit(next(), 16);
+						if (digit < 0) { throw error("Illegal escape."); }
+						code = code * 16 + digit;
+					}
+					builder.append((char) code);
+					break;
+				case '"':
+				case '\'':
+				case '\\':
+				case '/':
+					builder.append((char) c);
+					break;
+				default:
+					throw error("Illegal escape.");
+			}
+		}
+	}
+
+	/* Turns the string in the scratch space into a Java string. */
+	private String scratchString()
+	{
+		String raw
+			= new String(scratch, 0, scratchLength, StandardCharsets.UTF_8);
+		if (!scratchEscaped) { return raw; }
+		return builder.append(raw).toString();
+	}
+
+	/* Checks whether the string in the scratch space equals the given
+	 * ASCII bytes. */
+	private boolean scratchEquals(byte[] expected)
+	{
+		if (scratchEscaped)
+		{
+			return scratchString().equals(
+				new String(expected, StandardCharsets.US_ASCII));
+		}
+		if (scratchLength != expected.length) { return false; }
+		for (int i = 0; i < scratchLength; i++)
+		{
+			if (scratch[i] != expected[i]) { return false; }
+		}
+		return true;
+	}
+
+	private void append(byte b)
+	{
+		if (scratchLength == scratch.length)
+		{
+			scratch = java.util.Arrays.copyOf(scratch, scratch.length * 2);
+		}
+		scratch[scratchLength++] = b;
+	}
+
+	private void expect(char expected)
+	{
+		if (nextClean() != expected)
+		{
+			throw error("Expected '" + expected + "'");
+		}
+	}
+
+	/* Returns the next byte that isn't whitespace, -1 at the end. */
+	private int nextClean()
+	{
+		int c = peekClean();
+		if (c >= 0) { position++; }
+		return c;
+	}
+
+	/* Skips whitespace and returns the next byte without moving on,
+	 * -1 at the end. */
+	private int peekClean()
+	{
+		while (true)
+		{
+			int c = peek();
+			if (c < 0 || c > ' ') { return c; }
+			position++;
+		}
+	}
+
+	/* Returns the next byte. The end of the file is a flaw here. */
+	private int next()
+	{
+		int c = peek();
+		if (c < 0) { throw error("Unexpected end of file"); }
+		position++;
+		return c;
+	}
+
+	/* Returns the byte at the current position without moving on,
+	 * -1 at the end of the file. */
+	private int peek()
+	{
+		if (position >= length) { return -1; }
+
+		long offset = position - windowStart;
+		if (offset < 0 || offset >= window.limit())
+		{
+			/* Map the next window of the file. */
+			windowStart = position;
+			offset = 0;
+			try
+			{
+				window = channel.map(FileChannel.MapMode.READ_ONLY,
+					windowStart, Math.min(WINDOW, length - windowStart));
+			}
+			catch(IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		}
+		return window.get((int) offset) & 0xFF;
+	}
+
+	private JSONException error(String message)
+	{
+		return new JSONException(message + " at byte " + position);
+	}
+
+	private static byte[] bytes(String ascii)
+	{
+		return ascii.getBytes(StandardCharsets.US_ASCII);
+	}
+}
@@ -0,0 +1,174 @@
+/* OffHeapDisk.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import java.nio.ByteBuffer;
+
+/* A disk kept outside of the Java heap, in a region of a direct buffer
+ * of a DiskArena. The instance itself is a flyweight of a few fields
+ * reading the sizes, depths and pronom ids from that region, so neither
+ * the files nor their matches are objects the garbage collector has to
+ * trace.
+ * 
+ * The region holds the columns of a ColumnarDisk one after the other:
+ * the sizes as longs, the match offsets and pronom ids as ints and the
+ * depths as shorts.
+ * 
+ * Get one by DiskArena.store. Once released (see DiskArena.release),
+ * the region may hold another disk, so any further access throws an
+ * IllegalStateException. Reading a disk from several threads is fine,
+ * reading it while it's released is not.
+ */
+public final class OffHeapDisk implements DiskColumns
+{
+	private final String name;
+
+	/* The arena's buffer holding the region, null once released. */
+	private ByteBuffer buffer;
+
+	/* The slab of the arena the region is part of. */
+	final DiskArena.Slab slab;
+
+	private final int files;
+	private final int matches;
+
+	/* Where the columns start within the buffer. */
+	private final int sizesAt;
+	private final int offsetsAt;
+	private final int pronomsAt;
+	private final int depthsAt;
+
+	/* Copies the columns of DISK into BUFFER, starting at BASE, which
+	 * has to leave room for bytes(disk) bytes. */
+	OffHeapDisk(DiskColumns disk, DiskArena.Slab slab, ByteBuffer buffer,
+		int base)
+	{
+		this.name = disk.name();
+		this.buffer = buffer;
+		this.slab = slab;
+		this.files = disk.fileCount();
+		this.matches = disk.numberOfMatches();
+		this.sizesAt = base;
+		this.offsetsAt = sizesAt + 8 * files;
+		this.pronomsAt = offsetsAt + 4 * (files + 1);
+		this.depthsAt = pronomsAt + 4 * matches;
+
+		int match = 0;
+		for (int file = 0; file < files; file++)
+		{
+			buffer.putLong(sizesAt + 8 * file, disk.fileSize(file));
+			buffer.putShort(depthsAt + 2 * file, (short) Math.min(
+				Math.max(disk.depth(file), 0), Short.MAX_VALUE));
+			buffer.putInt(offsetsAt + 4 * file, match);
+			for (int m = 0; m < disk.matchCount(file); m++)
+			{
+				buffer.putInt(pronomsAt + 4 * match++, disk.pronom(file, m));
+			}
+		}
+		buffer.putInt(offsetsAt + 4 * files, match);
+	}
+
+	/* The number of bytes the columns of DISK take, rounded up to keep
+	 * the longs of the next region aligned. */
+	static long bytes(DiskColumns disk)
+	{
+		long bytes = 14L * disk.fileCount() + 4
+			+ 4L * disk.numberOfMatches();
+		return (bytes + 7) & ~7L;
+	}
+
+	/* The buffer, as long as the disk hasn't been released. */
+	private ByteBuffer buffer()
+	{
+		ByteBuffer current = buffer;
+		if (current == null)
+		{
+			throw new IllegalStateException("The disk " + name
+				+ " has been released.");
+		}
+		return current;
+	}
+
+	/* Called by the arena only. */
+	void release() { buffer = null; }
+
+	public boolean isReleased() { return buffer == null; }
+
+	@Override
+	public String name() { return name; }
+
+	@Override
+	public int fileCount() { return files; }
+
+	@Override
+	public long fileSize(int file)
+	{
+		return buffer().getLong(sizesAt + 8 * checkFile(file));
+	}
+
+	@Override
+	public int depth(int file)
+	{
+		return buffer().getShort(depthsAt + 2 * checkFile(file));
+	}
+
+	@Override
+	public int matchCount(int file)
+	{
+		ByteBuffer current = buffer();
+		int at = offsetsAt + 4 * checkFile(file);
+		return current.getInt(at + 4) - current.getInt(at);
+	}
+
+	@Override
+	public int pronom(int file, int match)
+	{
+		ByteBuffer current = buffer();
+		int at = offsetsAt + 4 * checkFile(file);
+		int first = current.getInt(at);
+		if (match < 0 || first + match >= current.getInt(at + 4))
+		{
+			throw new IndexOutOfBoundsException("Match " + match
+				+ " of file " + file);
+		}
+		return current.getInt(pronomsAt + 4 * (first + match));
+	}
+
+	@Override
+	public int numberOfMatches() { return matches; }
+
+	/* The buffer is shared with other disks, so an index out of range
+	 * wouldn't be noticed by the buffer itself. */
+	private int checkFile(int file)
+	{
+		if (file < 0 || file >= files)
+		{
+			throw new IndexOutOfBoundsException("File " + file);
+		}
+		return file;
+	}
+}
@@ -27,8 +27,11 @@
 package systemRecommendation;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.stream.IntStream;
 
 /* This class is used for tuning the parameters defining the influence of
  * the pronom relevance factors. */
@@ -40,13 +43,19 @@ public class ParameterTuning {
 	public static void main(String args[]) throws IOException
 	{
 		/* If a different directory is given, use this one instead. */
-		if (args.length == 1)
+		if (args.length >= 1)
 		{
 			directory = args[0];
 		}
 
+		/* If a manifest is given, only new or changed Siegfried outputs
+		 * are parsed (see CorpusManifest). */
+		Path manifest = (args.length >= 2 ? Paths.get(args[1]) : null);
+
 		PronomStatistics pronomStats = SystemRecommendation.createPronomStats(
-				directory + "siegfriedData\\\\");
+				directory + "siegfriedData\\\\", manifest);
+		System.out.println("Skipped " + pronomStats.getSkippedDuplicates()
+			+ " duplicate Siegfried outputs.");
 		
 		SystemStatistics systemStats = SystemRecommendation.createSystemStats(
 			directory + "testSystems\\\\test02.txt");
@@ -84,11 +93,16 @@ public class ParameterTuning {
 		/* Score of the best option found yet. */
 		int bestOptionsScore = 0;
 
-		/* Try each parameter combination option. */
+		/* Try each parameter combination option. Scoring doesn't change
+		 * the disks, so all options are scored in parallel. */
+		int[] scores = IntStream.range(0, options.length).parallel()
+			.map(option -> calculateOptionScore(pronomStats, systemStats,
+				disks, options[option]))
+			.toArray();
+
 		for (int option = 0; option < options.length; option++)
 		{
-			int optionScore = calculateOptionScore(pronomStats, systemStats,
-				disks, options[option]);
+			int optionScore = scores[option];
 			
 			/* Check whether the current parameter combination
 			 * is the best one so far. */
@@ -168,7 +182,7 @@ public class ParameterTuning {
 				mostRelevantPronom = key;
 			}
 		}
-		return mostRelevantPronom == disk.getMostRelevantPronom();
+		return mostRelevantPronom.equals(disk.getMostRelevantPronom());
 	}
 	
 	/* This function creates some Siegfried files and some disks,
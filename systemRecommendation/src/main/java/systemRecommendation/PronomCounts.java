@@ -0,0 +1,156 @@
+/* PronomCounts.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+
+package systemRecommendation;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/* Counts of pronoms, e.g. how often they occur in a corpus or how many
+ * systems can read them, kept in an array indexed by the pronom ids
+ * of the PronomRegistry.
+ * 
+ * Instances aren't thread-safe.
+ */
+public class PronomCounts
+{
+	private int[] counts = new int[PronomRegistry.size()];
+
+	/* The number of pronoms with a count other than 0. */
+	private int size = 0;
+
+	public PronomCounts() {}
+
+	/* Counts taken from a map of pronoms. */
+	public PronomCounts(Map<String, Integer> counts)
+	{
+		add(counts, 1);
+	}
+
+	/* The count of the pronom with the given id. */
+	public int get(int id)
+	{
+		return (id >= 0 && id < counts.length ? counts[id] : 0);
+	}
+
+	/* The count of the given pronom. */
+	public int get(String pronom)
+	{
+		return get(PronomRegistry.lookup(pronom));
+	}
+
+	/* Adds COUNT to the count of the pronom with the given id. */
+	public void add(int id, int count)
+	{
+		if (id >= counts.length)
+		{
+			counts = Arrays.copyOf(counts,
+				Math.max(id + 1, PronomRegistry.size()));
+		}
+
+		int previous = counts[id];
+		counts[id] += count;
+		if (previous == 0 && counts[id] != 0) { size++; }
+		if (previous != 0 && counts[id] == 0) { size--; }
+	}
+
+	/* Adds the counts of a map, multiplied by SIGN. */
+	public void add(Map<String, Integer> counts, int sign)
+	{
+		for (Map.Entry<String, Integer> count : counts.entrySet())
+		{
+			add(PronomRegistry.id(count.getKey()), sign * count.getValue());
+		}
+	}
+
+	/* The number of pronoms with a count other than 0. */
+	public int size()
+	{
+		return size;
+	}
+
+	/* The sum of all counts. */
+	public int total()
+	{
+		int total = 0;
+		for (int count : counts)
+		{
+			total += count;
+		}
+		return total;
+	}
+
+	/* The ids of all pronoms with a count other than 0,
+	 * in increasing order. */
+	public int[] ids()
+	{
+		int[] ids = new int[size];
+		int next = 0;
+		for (int id = 0; id < counts.length; id++)
+		{
+			if (counts[id] != 0) { ids[next++] = id; }
+		}
+		return ids;
+	}
+
+	/* The counts other than 0 by pronom. */
+	public HashMap<String, Integer> toMap()
+	{
+		HashMap<String, Integer> map = new HashMap<String, Integer>();
+		for (int id : ids())
+		{
+			map.put(PronomRegistry.pronom(id), counts[id]);
+		}
+		return map;
+	}
+
+	@Override
+	public boolean equals(Object other)
+	{
+		if (!(other instanceof PronomCounts)) { return false; }
+
+		PronomCounts counts = (PronomCounts) other;
+		if (size != counts.size) { return false; }
+		for (int id : ids())
+		{
+			if (this.counts[id] != counts.get(id)) { return false; }
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int hash = 0;
+		for (int id : ids())
+		{
+			hash += id * 31 + counts[id];
+		}
+		return hash;
+	}
+}
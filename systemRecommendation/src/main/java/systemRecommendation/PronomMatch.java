@@ -28,33 +28,60 @@ package systemRecommendation;
 
 /* The instances of this class represent pronom matches of files
  * (see SiegfriedFile).
- * They each have a Pronom ID (the id of the format) and a relevance.
+ * They each have a Pronom ID (the id of the format), kept as its id
+ * in the PronomRegistry.
+ * 
+ * Matches are immutable, so a single one per pronom is shared by all
+ * files (see of(pronom)). The relevance of a match depends on its file
+ * and is calculated by PronomRelevance.
  */
 public class PronomMatch {
 
 	/* The 'Persistent Unique IDentifier of the PRONOM technical registry
 	 * allows to identify a file format. */
-	private String PUID;
-	private double relevance;
+	private final int PUID;
 	
+	/* Null stands for a match without pronom. */
 	public PronomMatch(String pronom)
+	{
+		this(PronomRegistry.id(pronom));
+	}
+	
+	/* Constructor for a pronom given by its id in the PronomRegistry. */
+	public PronomMatch(int pronom)
 	{
 		PUID = pronom;
-		relevance = 0;
 	}
 	
-	public double getRelevance()
+	/* The shared match of the given pronom. Null stands for a match
+	 * without pronom. */
+	public static PronomMatch of(String pronom)
 	{
-		return relevance;
+		return of(PronomRegistry.id(pronom));
 	}
 	
-	public void setRelevance(double rel)
+	/* The shared match of a pronom given by its id. */
+	public static PronomMatch of(int pronom)
 	{
-		relevance = rel;
+		return PronomMatches.of(pronom).get(0);
 	}
 
 	public String pronom()
+	{
+		return PronomRegistry.pronom(PUID);
+	}
+
+	/* The id of the pronom, PronomRegistry.NO_ID if there's none. */
+	public int id()
 	{
 		return PUID;
 	}
+
+	/* The id of the format the match stands for. A match without pronom
+	 * is of the unknown format, just like one Siegfried couldn't
+	 * identify. */
+	public int format()
+	{
+		return (PUID == PronomRegistry.NO_ID ? PronomRegistry.UNKNOWN : PUID);
+	}
 }
@@ -0,0 +1,146 @@
+/* PronomMatches.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+
+package systemRecommendation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* Canonical, immutable lists of pronom matches, shared by all files
+ * with the same matches, no matter on which disk.
+ * 
+ * Almost every file has a single match, so the list of a single match
+ * of each pronom is kept in an array indexed by the pronom id. Its match
+ * is the canonical PronomMatch of that pronom. Lists of several matches
+ * are interned by their ids, up to MAX_INTERNED matches. Longer ones are
+ * rare and just copied.
+ * 
+ * Shared by all threads.
+ */
+final class PronomMatches
+{
+	static final List<PronomMatch> EMPTY = Collections.emptyList();
+
+	/* Longer lists aren't interned, so odd outputs can't make the
+	 * interned lists grow without bound. */
+	private static final int MAX_INTERNED = 8;
+
+	/* The single match lists by pronom id. Only replaced by a larger copy.
+	 * The lists and matches are immutable, so reading an entry without
+	 * synchronization either yields a complete list or null. */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static volatile List<PronomMatch>[] singletons = new List[1024];
+
+	/* The lists of several matches by their pronom ids. */
+	private static final ConcurrentHashMap<Ids, List<PronomMatch>> lists
+		= new ConcurrentHashMap<Ids, List<PronomMatch>>();
+
+	private PronomMatches() {}
+
+	/* The canonical list of a single match of the given pronom id. */
+	static List<PronomMatch> of(int pronom)
+	{
+		List<PronomMatch>[] current = singletons;
+		if (pronom < current.length)
+		{
+			List<PronomMatch> list = current[pronom];
+			if (list != null) { return list; }
+		}
+		return createSingleton(pronom);
+	}
+
+	/* The canonical list of the matches of LIST followed by MATCH. */
+	static List<PronomMatch> append(List<PronomMatch> list,
+		PronomMatch match)
+	{
+		if (list.isEmpty()) { return of(match.id()); }
+
+		int[] ids = new int[list.size() + 1];
+		for (int i = 0; i < list.size(); i++)
+		{
+			ids[i] = list.get(i).id();
+		}
+		ids[list.size()] = match.id();
+
+		if (ids.length > MAX_INTERNED) { return create(ids); }
+
+		Ids key = new Ids(ids);
+		List<PronomMatch> canonical = lists.get(key);
+		if (canonical != null) { return canonical; }
+
+		List<PronomMatch> created = create(ids);
+		canonical = lists.putIfAbsent(key, created);
+		return (canonical != null ? canonical : created);
+	}
+
+	private static synchronized List<PronomMatch> createSingleton(int pronom)
+	{
+		if (pronom >= singletons.length)
+		{
+			singletons = Arrays.copyOf(singletons,
+				Math.max(2 * singletons.length, pronom + 1));
+		}
+
+		List<PronomMatch> list = singletons[pronom];
+		if (list == null)
+		{
+			list = Collections.singletonList(new PronomMatch(pronom));
+			singletons[pronom] = list;
+		}
+		return list;
+	}
+
+	/* An immutable list of the canonical matches of the given ids. */
+	private static List<PronomMatch> create(int[] ids)
+	{
+		PronomMatch[] matches = new PronomMatch[ids.length];
+		for (int i = 0; i < ids.length; i++)
+		{
+			matches[i] = of(ids[i]).get(0);
+		}
+		return Collections.unmodifiableList(Arrays.asList(matches));
+	}
+
+	/* The pronom ids of a list of matches as key of 'lists'. */
+	private static final class Ids
+	{
+		private final int[] ids;
+
+		private Ids(int[] ids) { this.ids = ids; }
+
+		@Override
+		public boolean equals(Object other)
+		{
+			return other instanceof Ids && Arrays.equals(ids, ((Ids) other).ids);
+		}
+
+		@Override
+		public int hashCode() { return Arrays.hashCode(ids); }
+	}
+}
@@ -0,0 +1,119 @@
+/* PronomRegistry.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+
+package systemRecommendation;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* Interns each pronom to a dense integer id, so statistics, capabilities
+ * and relevances can be kept in arrays indexed by the id instead of
+ * maps hashing strings (see PronomCounts and PronomValues).
+ * 
+ * Ids are handed out in the order the pronoms are first seen and are
+ * never released. The registry is shared by all threads.
+ */
+public final class PronomRegistry
+{
+	/* The id of matches without any pronom, e.g. when Siegfried didn't
+	 * report an id. Their pronom reads "UNKNOWN", yet unlike Siegfried's
+	 * own "UNKNOWN" they aren't counted by the statistics. */
+	public static final int NO_ID = 0;
+
+	/* The id of the pronom "UNKNOWN" Siegfried reports for files
+	 * it couldn't identify. */
+	public static final int UNKNOWN;
+
+	/* The ids by pronom. */
+	private static final ConcurrentHashMap<String, Integer> ids
+		= new ConcurrentHashMap<String, Integer>();
+
+	/* The pronoms by id. Only replaced by a larger copy, and each
+	 * pronom is stored before its id is published in 'ids'. */
+	private static volatile String[] pronoms = new String[1024];
+
+	private static volatile int size = 1;
+
+	static
+	{
+		pronoms[NO_ID] = "UNKNOWN";
+		UNKNOWN = id("UNKNOWN");
+	}
+
+	private PronomRegistry() {}
+
+	/* Returns the id of PRONOM, registering it if it's new.
+	 * Null stands for a match without pronom (NO_ID). */
+	public static int id(String pronom)
+	{
+		if (pronom == null) { return NO_ID; }
+
+		Integer id = ids.get(pronom);
+		return (id != null ? id : register(pronom));
+	}
+
+	/* Returns the id of PRONOM or -1 if it has never been registered.
+	 * Unlike id(pronom), this doesn't grow the registry. */
+	public static int lookup(String pronom)
+	{
+		if (pronom == null) { return NO_ID; }
+
+		Integer id = ids.get(pronom);
+		return (id != null ? id : -1);
+	}
+
+	/* Returns the pronom of a given id. */
+	public static String pronom(int id)
+	{
+		return pronoms[id];
+	}
+
+	/* The number of ids handed out so far. All ids are below. */
+	public static int size()
+	{
+		return size;
+	}
+
+	private static synchronized int register(String pronom)
+	{
+		Integer id = ids.get(pronom);
+		if (id != null) { return id; }
+
+		int next = size;
+		String[] current = pronoms;
+		if (next == current.length)
+		{
+			current = Arrays.copyOf(current, 2 * next);
+		}
+
+		current[next] = pronom;
+		pronoms = current;
+		size = next + 1;
+		ids.put(current[next], next);
+		return next;
+	}
+}
@@ -27,7 +27,6 @@
 package systemRecommendation;
 
 import java.util.HashMap;
-import java.util.Iterator;
 
 /* This class deals with the calculation of the relevance of pronoms of
  * a given disk.
@@ -37,6 +36,8 @@ import java.util.Iterator;
  * Requires: the pronoms of the files on the disk, their size and
  * empirical values of the pronoms.
  * 
+ * The relevances are calculated by the ids of the pronoms in the
+ * PronomRegistry. Matches without pronom count as the unknown format.
  */
 public class PronomRelevance
 {
@@ -60,13 +61,114 @@ public class PronomRelevance
 		    Disk disk, PronomStatistics pronomStats,
 		    SystemStatistics systemStats,
 		    double depthPar)
+	{
+		return relevances(disk, pronomStats, systemStats, depthPar).toMap();
+	}
+
+	/* Same as above, yet the relevances are kept by pronom id. */
+	public static PronomValues relevances(
+		    Disk disk, PronomStatistics pronomStats,
+		    SystemStatistics systemStats,
+		    double depthPar)
 	{
 		/* Start with a relevance value of 100% for the entire disk
 		 * and share this relevance between all matches of all files. */
-		fileRelevance(disk, 1.0, depthPar);
+		PronomValues relevances
+			= fileRelevances(disk, depthPar).matchRelevances();
 
-		HashMap<String, Double> relevances = sumMatchRelevances(disk);
-		
+		return relevances(relevances, pronomStats, systemStats);
+	}
+
+	/* Same as above for a disk whose files have been handed to the given
+	 * accumulator, e.g. while the Siegfried output was still being read.
+	 * The relevances are the same, up to rounding.
+	 */
+	public static HashMap<String, Double> pronomRelevances(
+		RelevanceAccumulator accumulator, PronomStatistics pronomStats,
+		SystemStatistics systemStats)
+	{
+		return relevances(accumulator, pronomStats, systemStats).toMap();
+	}
+
+	/* Same as above, yet the relevances are kept by pronom id. */
+	public static PronomValues relevances(
+		RelevanceAccumulator accumulator, PronomStatistics pronomStats,
+		SystemStatistics systemStats)
+	{
+		return relevances(accumulator.matchRelevances(),
+			pronomStats, systemStats);
+	}
+
+	/* Same as above for a disk kept column by column, on the heap
+	 * (ColumnarDisk) or outside of it (OffHeapDisk). The relevances
+	 * are exactly the same as for the same disk read as SiegfriedFiles,
+	 * yet they're summed up by tight loops over the columns. */
+	public static HashMap<String, Double> pronomRelevances(
+		DiskColumns disk, PronomStatistics pronomStats,
+		SystemStatistics systemStats, double depthPar)
+	{
+		return relevances(disk, pronomStats, systemStats, depthPar).toMap();
+	}
+
+	/* Same as above, yet the relevances are kept by pronom id. */
+	public static PronomValues relevances(
+		DiskColumns disk, PronomStatistics pronomStats,
+		SystemStatistics systemStats, double depthPar)
+	{
+		return relevances(sumMatchRelevances(disk, depthPar),
+			pronomStats, systemStats);
+	}
+
+	/* Same as above for the profile of a disk. The profile may be scored
+	 * with any depth penalty. Since the profile doesn't cut penalized
+	 * sizes to integers, the relevances may differ from the ones of the
+	 * disk itself (see DiskProfile). */
+	public static HashMap<String, Double> pronomRelevances(
+		DiskProfile profile, PronomStatistics pronomStats,
+		SystemStatistics systemStats, double depthPar)
+	{
+		return relevances(profile, pronomStats, systemStats, depthPar)
+			.toMap();
+	}
+
+	/* Same as above, yet the relevances are kept by pronom id. */
+	public static PronomValues relevances(
+		DiskProfile profile, PronomStatistics pronomStats,
+		SystemStatistics systemStats, double depthPar)
+	{
+		return relevances(profile.matchRelevances(depthPar),
+			pronomStats, systemStats);
+	}
+
+	/* Same as above for the files of a single folder of a disk and its
+	 * subfolders, e.g. folder = disk.disk().getPath("DATA/PROJECTS").
+	 * The relevances are the ones of the profile of a disk of just these
+	 * files, with their paths relative to the folder, which may differ
+	 * from the ones of that disk itself (see DiskProfile). Once the
+	 * profile of the folder has been built (see Folder.profile), it takes
+	 * time depending on the pronoms in the folder, not on its files. */
+	public static HashMap<String, Double> pronomRelevances(
+		Folder folder, PronomStatistics pronomStats,
+		SystemStatistics systemStats, double depthPar)
+	{
+		return relevances(folder, pronomStats, systemStats, depthPar).toMap();
+	}
+
+	/* Same as above, yet the relevances are kept by pronom id. */
+	public static PronomValues relevances(
+		Folder folder, PronomStatistics pronomStats,
+		SystemStatistics systemStats, double depthPar)
+	{
+		return relevances(folder.profile(), pronomStats, systemStats,
+			depthPar);
+	}
+
+	/* Turns the summed relevances of the matches of each pronom
+	 * into the final relevances. */
+	private static PronomValues relevances(
+		PronomValues relevances, PronomStatistics pronomStats,
+		SystemStatistics systemStats)
+	{
 		/* Project relevances to [0, 1]. */
 		normalizeRelevances(relevances);
 		
@@ -92,21 +194,18 @@ public class PronomRelevance
 	 * pronom.
 	 * The largest bonus is given to pronoms that appear only once in
 	 * the dataset. */
-	private static void addPronomRarity(HashMap<String, Double> relevances,
+	private static void addPronomRarity(PronomValues relevances,
 		PronomStatistics pronomStats)
 	{
 		/* Iterate over all pronoms and calculate their rarity bonus. */
-		Iterator<String> iter = relevances.keySet().iterator();
-		while (iter.hasNext())
+		for (int pronom : relevances.ids())
 		{
-			String pronom = iter.next();
-			
 			/* The relevance value without any pronom rarity bonus. */
-			Double oldRelevance = relevances.get(pronom);
+			double oldRelevance = relevances.get(pronom);
 			
 			/* Since relevance drops with a higher frequency, we use
 			 * (1 - frequency). */
-			Double rarityBonus = 1 - pronomStats.getRelativeFrequency(pronom);
+			double rarityBonus = 1 - pronomStats.getRelativeFrequency(pronom);
 			
 			/* If the relative frequency is 1 since all files have the same format,
 			 * dont' add a rarity bonus, since it would yield a product of 0.*/
@@ -128,7 +227,7 @@ public class PronomRelevance
 	 * read by any system at all. Those won't matter anyway.
 	 * The largest bonus is given to pronoms that can only be read by one
 	 * single system. */
-	private static void addSystemRarity(HashMap<String, Double> relevances,
+	private static void addSystemRarity(PronomValues relevances,
 		SystemStatistics systemStats)
 	{
 		/* If there aren't any systems at all, don't ruin the relevance
@@ -136,18 +235,14 @@ public class PronomRelevance
 		if (systemStats.systems.size() == 0) { return; }
 		
 		/* Iterate over all pronoms and calculate their rarity bonus. */
-		Iterator<String> iter = relevances.keySet().iterator();
-		while (iter.hasNext())
+		for (int pronom : relevances.ids())
 		{
-			String pronom = iter.next();
-			
 			/* The relevance value without any system rarity bonus. */
-			Double oldRelevance = relevances.get(pronom);
+			double oldRelevance = relevances.get(pronom);
 			
 			/* The number of systems able to read the pronom. */
-			Integer readSystems = systemStats.readingSystems.get(pronom);
+			int readSystems = systemStats.numberOfReadingSystems(pronom);
 			
-			if (readSystems == null) { continue; }
 			if (readSystems <= 0) { continue; }
 			
 			/* If there is any information about the system rarity,
@@ -158,130 +253,147 @@ public class PronomRelevance
 		}
 	}
 	
-	/* This function accepts a hashmap of relevance values for pronoms
+	/* This function accepts relevance values for pronoms
 	 * and normalizes these relevances by projecting to values
 	 * between 0 and 1. */
-	private static void normalizeRelevances(
-		HashMap<String, Double> relevances)
+	private static void normalizeRelevances(PronomValues relevances)
 	{
 		if (relevances.size() == 0) { return; }
 
+		int[] pronoms = relevances.ids();
+
 		/* 1. Sum up the relevance values. */
-		Double sum = 0.0;
+		double sum = 0.0;
 		
-		for (String pronom : relevances.keySet())
+		for (int pronom : pronoms)
 		{
-			if (pronom == null) { continue; }
-			if (pronom.equals("UNKNOWN")) { continue; }
-
-			Double value = relevances.get(pronom);
+			if (pronom == PronomRegistry.UNKNOWN) { continue; }
 
-			sum += (value == null ? 0.0 : value);
+			sum += relevances.get(pronom);
 		}
 
 		if (sum < 0.0000000001) { return; }
 		
 		/* 2. Perform the projections. */
-		Iterator<String> iter = relevances.keySet().iterator();
-		while (iter.hasNext())
+		for (int pronom : pronoms)
 		{
-			String pronom = iter.next();
-			if (pronom.equals("UNKNOWN"))
+			if (pronom == PronomRegistry.UNKNOWN)
 			{
 				relevances.put(pronom, 0.0);
 				continue;
 			}
-			Double oldRelevance = relevances.get(pronom);
-			relevances.put(pronom, oldRelevance == null ? null : oldRelevance / sum);
+			relevances.put(pronom, relevances.get(pronom) / sum);
 		}
 	}
 	
-	/* This function sums up the relevances of all matches
-	 * of the same pronom across the disk.
-	 * 
-	 * RETURNS	A hashmap containing the relevances for each pronom.
-	 */
-	private static HashMap<String, Double> sumMatchRelevances(Disk disk)
+	/* Same as fileRelevances(disk, depthPenalty).matchRelevances()
+	 * for a disk kept column by column. */
+	private static PronomValues sumMatchRelevances(DiskColumns disk,
+		double depthPenalty)
 	{
-		HashMap<String, Double> relevances = initializeRelevanceMap(disk);
-		
-		/* For all matches of all files:
-		 * Sum up the relevances for each pronom. */
-		for (SiegfriedFile file : disk.files)
+		int files = disk.fileCount();
+
+		/* Calculate penalized size of each file according to its depth
+		 * in the file system. */
+		int[] penalizedSizes = new int[files];
+		double sumOfPenalizedSizes = 0;
+		for (int file = 0; file < files; file++)
+		{
+			penalizedSizes[file] = penalizedSize(disk.fileSize(file),
+				disk.depth(file), depthPenalty);
+			sumOfPenalizedSizes += penalizedSizes[file];
+		}
+
+		/* Share the relevance of each file between its matches and sum
+		 * them up for each pronom. */
+		double[] sums = new double[PronomRegistry.size()];
+		boolean[] present = new boolean[sums.length];
+		for (int file = 0; file < files; file++)
 		{
-			for (PronomMatch match : file.matches())
+			int matches = disk.matchCount(file);
+			if (matches == 0) { continue; }
+
+			double rel = ((double) penalizedSizes[file]) / sumOfPenalizedSizes;
+			double share = rel / matches;
+			for (int match = 0; match < matches; match++)
 			{
-				String pronom = match.pronom();
-				relevances.put(pronom,
-					relevances.get(pronom) + match.getRelevance());
+				int pronom = disk.pronom(file, match);
+				if (pronom == PronomRegistry.NO_ID)
+				{
+					pronom = PronomRegistry.UNKNOWN;
+				}
+				sums[pronom] += share;
+				present[pronom] = true;
 			}
 		}
+
+		PronomValues relevances = new PronomValues();
+		for (int pronom = 0; pronom < sums.length; pronom++)
+		{
+			if (present[pronom]) { relevances.put(pronom, sums[pronom]); }
+		}
 		return relevances;
 	}
 	
 	/* This function calculates the relevance values of each file according
 	 * to its size and penalized by its depth in the file system.
+	 * The relevance of 100% is shared between the files.
 	 * 
 	 * DISK		  The disk whose files' relevances shall be calculated.
-	 * 
-	 * RELEVANCE  The relevance value that shall be shared between the files.
+	 *            It isn't changed, so it may be scored by several threads
+	 *            at once.
 	 * 
 	 * DEPTHPENALTY Choose a value between 0 and 1.
 	 *              1 means no effect of the depth.
 	 *              0 means files in subfolders have no value at all.
 	 *              Everything in between penalizes files in sub-subfolders
 	 *              more than files in regular subfolders.
+	 * 
+	 * RETURNS	  The penalized sizes and relevances of the files and
+	 *            their matches.
 	 */
-	private static void fileRelevance(Disk disk, double relevance,
+	public static RelevanceResult fileRelevances(Disk disk,
 		double depthPenalty)
 	{
 		/* Calculate penalized size of each file according to its depth
 		 * in the file system. */
+		int[] penalizedSizes = new int[disk.files.length];
 		double sumOfPenalizedSizes = 0;
-		for (SiegfriedFile file : disk.files)
+		for (int i = 0; i < disk.files.length; i++)
 		{
-			/* First, reduce the influence of file sizes by rooting them. */
-			int size = (int) Math.sqrt(file.fileSize());
-
-			/* For each subfolder, penalize the size even more. */
-			for (int i = 0; i < file.getDirectory().length; i++)
-			{
-				size *= depthPenalty;
-			}
-			file.setPenalizedSize(size);
-			sumOfPenalizedSizes += size;
+			penalizedSizes[i] = penalizedSize(disk.files[i], depthPenalty);
+			sumOfPenalizedSizes += penalizedSizes[i];
 		}
 
 		/* Calculate the relevance of each file according to its size
 		 * penalized by the depth in the file system. */
-		for (SiegfriedFile file : disk.files)
+		double[] relevances = new double[disk.files.length];
+		for (int i = 0; i < disk.files.length; i++)
 		{
-			double sizeShare
-			    = ((double) file.getPenalizedSize()) / sumOfPenalizedSizes;
-
-			double rel = sizeShare / relevance;
-
-			file.setRelevance(rel);
+			relevances[i] = ((double) penalizedSizes[i]) / sumOfPenalizedSizes;
 		}
+		return new RelevanceResult(disk, penalizedSizes, relevances);
 	}
 	
-	/* This function creates a Map containing a key for every pronom
-	 * occuring in the Siegfried files.
-	 * Default value is 0.
-	 */
-	private static HashMap<String, Double> initializeRelevanceMap(
-	   Disk disk)
+	/* This function calculates the size of a file penalized by its depth
+	 * in the file system. */
+	static int penalizedSize(SiegfriedFile file, double depthPenalty)
 	{
-		HashMap<String, Double> emptyRelevances
-		    = new HashMap<String, Double>();
+		return penalizedSize(file.fileSize(), file.depth(), depthPenalty);
+	}
+	
+	/* Same as above for a file of a given size and depth. */
+	static int penalizedSize(long fileSize, int depth, double depthPenalty)
+	{
+		/* First, reduce the influence of file sizes by rooting them. */
+		int size = (int) Math.sqrt(fileSize);
 
-		for (SiegfriedFile file : disk.files)
+		/* For each subfolder, penalize the size even more. */
+		for (int i = 0; i < depth; i++)
 		{
-			for (PronomMatch match : file.matches())
-			{
-				emptyRelevances.put(match.pronom(), 0.0);
-			}
+			size *= depthPenalty;
 		}
-		return emptyRelevances;
+		return size;
 	}
+
 }
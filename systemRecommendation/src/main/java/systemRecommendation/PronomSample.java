@@ -0,0 +1,229 @@
+/* PronomSample.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/* A uniform random sample of the file records of a corpus, so pronom
+ * statistics of billions of files can be estimated from a fixed number
+ * of them (see PronomStatistics(sample)).
+ * 
+ * The sample is a single reservoir across all disks. Hand it every file,
+ * e.g. as consumer of ExtractSiegfriedData.streamSiegfriedOutput or for
+ * each file of the disks of a SiegfriedCorpus. Files not selected cost
+ * next to nothing, since the reservoir skips ahead by random gaps
+ * (Li's algorithm L) instead of drawing a random number for each file.
+ * 
+ * Instances aren't thread-safe. Hand the files from a single thread.
+ */
+public class PronomSample implements Consumer<SiegfriedFile>
+{
+	/* Quantile of the normal distribution for 95% confidence. */
+	private static final double Z = 1.96;
+
+	/* The ids of the counted pronoms of each file in the sample. */
+	private final int[][] reservoir;
+
+	private final Random random;
+
+	/* The number of files seen so far. */
+	private long population = 0;
+
+	/* The index of the next file to be taken into the sample. */
+	private long next;
+
+	private double w;
+
+	/* SIZE	the number of files in the sample.
+	 * SEED	makes the sample reproducible. */
+	public PronomSample(int size, long seed)
+	{
+		if (size < 1)
+		{
+			throw new IllegalArgumentException(
+				"The sample has to hold at least one file.");
+		}
+		reservoir = new int[size][];
+		random = new Random(seed);
+		w = Math.exp(Math.log(random.nextDouble()) / size);
+		next = size + skip();
+	}
+
+	@Override
+	public void accept(SiegfriedFile file)
+	{
+		long index = population++;
+
+		/* Fill the reservoir first. */
+		if (index < reservoir.length)
+		{
+			reservoir[(int) index] = pronoms(file);
+			return;
+		}
+		if (index < next) { return; }
+
+		/* Replace a random file of the sample. */
+		reservoir[random.nextInt(reservoir.length)] = pronoms(file);
+		w *= Math.exp(Math.log(random.nextDouble()) / reservoir.length);
+		next = index + 1 + skip();
+	}
+
+	/* The number of files after the next one which aren't selected. */
+	private long skip()
+	{
+		double skip = Math.floor(Math.log(random.nextDouble())
+			/ Math.log(1 - w));
+		return (skip < Long.MAX_VALUE / 2 ? (long) skip : Long.MAX_VALUE / 2);
+	}
+
+	/* The ids of the pronoms of a file counted by PronomStatistics,
+	 * in increasing order. */
+	private static int[] pronoms(SiegfriedFile file)
+	{
+		int count = 0;
+		for (PronomMatch match : file.matches())
+		{
+			if (match.id() != PronomRegistry.NO_ID) { count++; }
+		}
+
+		int[] pronoms = new int[count];
+		count = 0;
+		for (PronomMatch match : file.matches())
+		{
+			if (match.id() != PronomRegistry.NO_ID)
+			{
+				pronoms[count++] = match.id();
+			}
+		}
+		Arrays.sort(pronoms);
+		return pronoms;
+	}
+
+	/* The number of files seen. */
+	public long population() { return population; }
+
+	/* The number of files in the sample. */
+	public int size()
+	{
+		return (int) Math.min(population, reservoir.length);
+	}
+
+	/* The number of matches of the files in the sample. */
+	public int numberOfMatches()
+	{
+		int matches = 0;
+		for (int i = 0; i < size(); i++)
+		{
+			matches += reservoir[i].length;
+		}
+		return matches;
+	}
+
+	/* The occurences of each pronom in the sample. */
+	public PronomCounts frequency()
+	{
+		PronomCounts frequency = new PronomCounts();
+		for (int i = 0; i < size(); i++)
+		{
+			for (int pronom : reservoir[i])
+			{
+				frequency.add(pronom, 1);
+			}
+		}
+		return frequency;
+	}
+
+	/* This function estimates how far the relative frequency of each
+	 * pronom in the sample may be off the one in the whole population.
+	 * 
+	 * The relative frequency is a ratio of two sums over files (the
+	 * occurences of the pronom and all matches), so its variance is
+	 * that of a ratio estimator, reduced by the share of the population
+	 * in the sample.
+	 * 
+	 * RETURNS	the half-width of the 95% confidence interval for each
+	 * 			pronom in the sample. It's 0 if the sample holds
+	 * 			the whole population.
+	 */
+	public PronomValues confidenceBounds()
+	{
+		PronomValues bounds = new PronomValues();
+		int n = size();
+		int matches = numberOfMatches();
+		if (matches == 0) { return bounds; }
+
+		/* Per pronom id: sum of y, y^2 and x*y, where y is the number of
+		 * occurences in a file and x the number of matches of the file. */
+		int ids = PronomRegistry.size();
+		double[] sumY = new double[ids];
+		double[] sumYY = new double[ids];
+		double[] sumXY = new double[ids];
+		double sumOfSquares = 0;
+
+		for (int i = 0; i < n; i++)
+		{
+			int[] pronoms = reservoir[i];
+			int x = pronoms.length;
+			sumOfSquares += (double) x * x;
+
+			/* The pronoms are sorted, so equal ones are adjacent. */
+			for (int start = 0, end; start < x; start = end)
+			{
+				end = start + 1;
+				while (end < x && pronoms[end] == pronoms[start]) { end++; }
+
+				int y = end - start;
+				sumY[pronoms[start]] += y;
+				sumYY[pronoms[start]] += (double) y * y;
+				sumXY[pronoms[start]] += (double) x * y;
+			}
+		}
+
+		double meanMatches = ((double) matches) / n;
+		double correction = Math.max(0, 1 - ((double) n) / population);
+
+		for (int pronom = 0; pronom < ids; pronom++)
+		{
+			if (sumY[pronom] == 0) { continue; }
+
+			double ratio = sumY[pronom] / matches;
+
+			/* Sum of (y - ratio * x)^2 over the files. */
+			double residuals = sumYY[pronom] - 2 * ratio * sumXY[pronom]
+				+ ratio * ratio * sumOfSquares;
+			double variance = (correction == 0 ? 0
+				: n < 2 ? Double.POSITIVE_INFINITY
+				: correction * Math.max(0, residuals) / (n - 1)
+					/ (n * meanMatches * meanMatches));
+
+			bounds.put(pronom, Math.min(1, Z * Math.sqrt(variance)));
+		}
+		return bounds;
+	}
+}
@@ -27,8 +27,11 @@
 package systemRecommendation;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
 
 /* With a set of pronoms of a set of Siegfried outputs and some information
  * about the rarity of systems able to read the formats associated with
@@ -36,6 +39,10 @@ import java.util.HashMap;
  * pronoms. Those may be used to calculate the relevance of a pronom
  * when a single disk is given.
  * 
+ * Every output is counted, copies and re-scans of the same disk
+ * included, unless a Deduplication is given to skip them. Statistics
+ * kept by a manifest count them once (see CorpusManifest).
+ * Pronoms are kept by their ids in the PronomRegistry.
  */
 public class PronomStatistics
 {
@@ -43,65 +50,234 @@ public class PronomStatistics
 	private int numberOfMatches = 0;
 
 	/* Total occurences of a given pronom. */
-	private HashMap<String, Integer> frequency
-	    = new HashMap<String, Integer>();
+	private PronomCounts frequency = new PronomCounts();
 
 	/* Fraction of the number of matches of a pronom
 	 * compared to all the matches of any pronom. */
-	private HashMap<String, Double> relativeFrequency
-	    = new HashMap<String, Double>();
+	private PronomValues relativeFrequency = new PronomValues();
+
+	/* Half-width of the 95% confidence interval of each relative
+	 * frequency if the statistics are estimated from a sample. */
+	private PronomValues confidenceBound = null;
+
+	/* Finds the duplicate outputs in the directory, which are skipped.
+	 * Null if duplicates are counted like any other output. */
+	private Deduplication deduplication = null;
+
+	/* Remembers the outputs already ingested, if any. */
+	private CorpusManifest manifest = null;
+	private Path directory;
+	private int workers;
 
 	public PronomStatistics(String directory) throws IOException
 	{
-		analyzeDirectory(directory);
+		analyzeDirectory(SiegfriedCorpus.disks(
+			Paths.get(directory), 1, deduplication));
+	}
+
+	/* Same as above, yet the Siegfried outputs are parsed by the given
+	 * number of threads. */
+	public PronomStatistics(String directory, int workers) throws IOException
+	{
+		analyzeDirectory(SiegfriedCorpus.disks(
+			Paths.get(directory), workers, deduplication));
+	}
+
+	/* Same as above, yet copies and re-scans of outputs are skipped and
+	 * counted by the given DEDUPLICATION (see getSkippedDuplicates). */
+	public PronomStatistics(String directory, int workers,
+		Deduplication deduplication) throws IOException
+	{
+		this.deduplication = deduplication;
+		analyzeDirectory(SiegfriedCorpus.disks(
+			Paths.get(directory), workers, deduplication));
+	}
+
+	/* Same as PronomStatistics(directory), yet the Siegfried outputs are
+	 * parsed by a single thread while the next ones are read ahead. */
+	public PronomStatistics(String directory, ReadAhead readAhead)
+		throws IOException
+	{
+		analyzeDirectory(readAhead.disks(Paths.get(directory), null));
 	}
 
-	/* This method calculates pronom statistics for a given directory. */
-    private void analyzeDirectory(String directory) throws IOException
+	/* Same as above, yet duplicates are skipped by DEDUPLICATION. */
+	public PronomStatistics(String directory, ReadAhead readAhead,
+		Deduplication deduplication) throws IOException
+	{
+		this.deduplication = deduplication;
+		analyzeDirectory(readAhead.disks(Paths.get(directory), deduplication));
+	}
+
+	/* Same as above, yet only outputs that are new or changed since the
+	 * manifest was saved are parsed. The manifest is updated afterwards.
+	 * See CorpusManifest. */
+	public PronomStatistics(String directory, int workers, Path manifest)
+		throws IOException
+	{
+		this.manifest = CorpusManifest.load(manifest);
+		this.directory = Paths.get(directory);
+		this.workers = workers;
+
+		frequency = this.manifest.totals();
+		refresh();
+	}
+
+	/* Same as above, yet the statistics are estimated from a random
+	 * sample of the files instead of counting every single one.
+	 * See getConfidenceBound(pronom) for how close the estimates are.
+	 * The number of matches is the one of the files in the sample. */
+	public PronomStatistics(String directory, int workers,
+		PronomSample sample) throws IOException
+	{
+		try (Stream<Disk> disks = SiegfriedCorpus.disks(
+			Paths.get(directory), workers, deduplication))
+		{
+			disks.forEach(disk ->
+			{
+				for (SiegfriedFile file : disk.files) { sample.accept(file); }
+			});
+		}
+		catch(UncheckedIOException e)
+		{
+			throw e.getCause();
+		}
+		useSample(sample);
+	}
+
+	/* Counts the pronoms of disks kept column by column, e.g. read by
+	 * ExtractSiegfriedData.extractColumnarDisk or stored in a DiskArena.
+	 * Unlike the constructors reading a directory, this doesn't skip
+	 * duplicate disks. */
+	public PronomStatistics(List<? extends DiskColumns> disks)
+	{
+		for (DiskColumns disk : disks)
+		{
+			numberOfMatches += countPronoms(disk, frequency);
+		}
+		calculateRelativeFrequencies();
+	}
+
+	/* Estimates the statistics from a sample of files from any source. */
+	public PronomStatistics(PronomSample sample)
+	{
+		useSample(sample);
+	}
+
+	private void useSample(PronomSample sample)
+	{
+		frequency = sample.frequency();
+		numberOfMatches = sample.numberOfMatches();
+		confidenceBound = sample.confidenceBounds();
+		calculateRelativeFrequencies();
+	}
+
+	/* This method updates the statistics in place to the current state
+	 * of the directory. Only new or changed outputs are parsed, deleted
+	 * ones are subtracted.
+	 * Statistics can only be refreshed if they've got a manifest.
+	 * If the manifest can't be saved, the statistics are updated anyway
+	 * before the failure is thrown. */
+	public void refresh() throws IOException
+	{
+		if (manifest == null)
+		{
+			throw new IllegalStateException(
+				"Pronom statistics without manifest can't be refreshed.");
+		}
+
+		manifest.update(directory, workers, frequency);
+
+		numberOfMatches = frequency.total();
+		calculateRelativeFrequencies();
+
+		manifest.save();
+	}
+
+	/* This method calculates pronom statistics for a given directory.
+	 * The disks are counted one after the other as they're read,
+	 * so only the pronom counts are kept in memory. */
+    private void analyzeDirectory(Stream<Disk> disks) throws IOException
+    {
+    	try (Stream<Disk> diskImages = disks)
+    	{
+    		diskImages.forEach(this::countPronoms);
+    	}
+    	catch(UncheckedIOException e)
+    	{
+    		throw e.getCause();
+    	}
+
+    	calculateRelativeFrequencies();
+    }
+
+    /* Calculate relative pronom frequencies. */
+    private void calculateRelativeFrequencies()
+    {
+    	relativeFrequency = new PronomValues();
+    	for (int pronom : frequency.ids())
+    	{
+    		relativeFrequency.put(pronom,
+                ((double) frequency.get(pronom)) / numberOfMatches);
+    	}
+    }
+
+    /* Count pronom frequencies. */
+    private void countPronoms(Disk image)
     {
-    	ArrayList<Disk> diskImages
-    		= ExtractSiegfriedData.extractPronoms(directory);
+    	numberOfMatches += countPronoms(image, frequency);
+    }
 
-    	/* Count pronom frequencies. */  	
-    	for (Disk image : diskImages)
+    /* This function adds the pronoms of a disk to the given frequencies.
+     * 
+     * RETURNS	the number of matches counted.
+     */
+    static int countPronoms(Disk image, PronomCounts frequency)
+    {
+    	int matches = 0;
+    	for (SiegfriedFile file : image.files)
     	{
-    		for (SiegfriedFile file : image.files)
-    		{  			
-    			for (PronomMatch match : file.matches())
+    		for (PronomMatch match : file.matches())
+    		{
+    			/* Matches without pronom aren't counted. */
+    			if (match.id() != PronomRegistry.NO_ID)
     			{
-    				if (match.pronom() != "UNKNOWN")
-    				{
-    			        numberOfMatches ++;
-        				incrementPronomFrequency(match.pronom());
-    				}
+    				matches ++;
+    				frequency.add(match.id(), 1);
     			}
     		}
     	}
-
-    	/* Calculate relative pronom frequencies. */
-    	for (String pronom : frequency.keySet())
+    	return matches;
+    }
+    
+    /* Same as above for a disk kept column by column. */
+    static int countPronoms(DiskColumns image, PronomCounts frequency)
+    {
+    	int matches = 0;
+    	for (int file = 0; file < image.fileCount(); file++)
     	{
-    		relativeFrequency.put(pronom,
-                ((double) frequency.get(pronom)) / numberOfMatches);
+    		for (int match = 0; match < image.matchCount(file); match++)
+    		{
+    			int pronom = image.pronom(file, match);
+
+    			/* Matches without pronom aren't counted. */
+    			if (pronom != PronomRegistry.NO_ID)
+    			{
+    				matches ++;
+    				frequency.add(pronom, 1);
+    			}
+    		}
     	}
+    	return matches;
     }
     
-    /* This method increments the general frequency of a given pronom.
-     * If there's no frequency for this pronom yet, 
-     * it will create an entry in the frequency map. 
-     */
-    private void incrementPronomFrequency(String pronom)
+    /* The number of outputs in the directory that have been skipped
+     * since they're copies or re-scans of others (see Deduplication).
+     * 0 unless the statistics got a Deduplication or a manifest. */
+    public int getSkippedDuplicates()
     {
-    	Integer freq = frequency.get(pronom);
-		if (freq == null)
-		{
-			freq = 1;
-		}
-		else 
-		{
-			freq += 1;
-		}
-		frequency.put(pronom, freq);
+    	if (manifest != null) { return manifest.duplicates(); }
+    	return (deduplication != null ? deduplication.duplicates() : 0);
     }
     
     public int getNumberOfMatches()
@@ -117,10 +293,17 @@ public class PronomStatistics
      * hashmap and avoids exceptions. */
     public double getRelativeFrequency(String pronom)
     {
-    	Double freq = relativeFrequency.get(pronom);
-    	
+    	return getRelativeFrequency(PronomRegistry.lookup(pronom));
+    }
+    
+    /* Same as above for the id of a pronom in the PronomRegistry. */
+    public double getRelativeFrequency(int pronom)
+    {
     	/* The pronom occured at least once in the dataset. */
-    	if (freq != null) { return freq; }
+    	if (relativeFrequency.contains(pronom))
+    	{
+    		return relativeFrequency.get(pronom);
+    	}
     	
     	/* The pronom didn't occur, but others occured. */
     	if (numberOfMatches != 0) { return 1 / numberOfMatches; }
@@ -131,8 +314,35 @@ public class PronomStatistics
     	return 0;
     }
     
+    /* This function tells how far the relative frequency of a given
+     * pronom may be off if the statistics are estimated from a sample.
+     * The true relative frequency lies within the returned distance
+     * of getRelativeFrequency(pronom) with a confidence of 95%.
+     * 
+     * RETURNS	0 for statistics counting every file.
+     * 			For pronoms not in the sample, this is the rule of three:
+     * 			they may still make up 3 of the sampled matches.
+     */
+    public double getConfidenceBound(String pronom)
+    {
+    	return getConfidenceBound(PronomRegistry.lookup(pronom));
+    }
+    
+    /* Same as above for the id of a pronom in the PronomRegistry. */
+    public double getConfidenceBound(int pronom)
+    {
+    	if (confidenceBound == null) { return 0; }
+
+    	if (confidenceBound.contains(pronom))
+    	{
+    		return confidenceBound.get(pronom);
+    	}
+    	if (numberOfMatches == 0) { return 1; }
+    	return Math.min(1, 3.0 / numberOfMatches);
+    }
+    
     public int getRelativeFrequencyMapSize()
     {
-    	return relativeFrequency.size();
+    	return frequency.size();
     }
 }
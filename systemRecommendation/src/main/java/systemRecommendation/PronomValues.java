@@ -0,0 +1,114 @@
+/* PronomValues.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+
+package systemRecommendation;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/* Values of pronoms, e.g. their relevances on a disk or their relative
+ * frequencies, kept in an array indexed by the pronom ids of the
+ * PronomRegistry. Unlike a count, a value may be 0 for a pronom
+ * that's present.
+ * 
+ * Instances aren't thread-safe.
+ */
+public class PronomValues
+{
+	private double[] values = new double[PronomRegistry.size()];
+
+	/* The ids of the pronoms that have a value. */
+	private final BitSet present = new BitSet();
+
+	public PronomValues() {}
+
+	/* Values taken from a map of pronoms. Null values are left out. */
+	public PronomValues(Map<String, Double> values)
+	{
+		for (Map.Entry<String, Double> value : values.entrySet())
+		{
+			if (value.getValue() == null) { continue; }
+			put(PronomRegistry.id(value.getKey()), value.getValue());
+		}
+	}
+
+	/* The value of the pronom with the given id, 0 if it has none. */
+	public double get(int id)
+	{
+		return (id >= 0 && id < values.length ? values[id] : 0);
+	}
+
+	/* Tells whether the pronom with the given id has a value. */
+	public boolean contains(int id)
+	{
+		return id >= 0 && present.get(id);
+	}
+
+	public void put(int id, double value)
+	{
+		if (id >= values.length)
+		{
+			values = Arrays.copyOf(values,
+				Math.max(id + 1, PronomRegistry.size()));
+		}
+		values[id] = value;
+		present.set(id);
+	}
+
+	/* Adds VALUE to the value of the pronom with the given id,
+	 * starting from 0. */
+	public void add(int id, double value)
+	{
+		put(id, get(id) + value);
+	}
+
+	/* The number of pronoms that have a value. */
+	public int size()
+	{
+		return present.cardinality();
+	}
+
+	/* The ids of the pronoms that have a value, in increasing order. */
+	public int[] ids()
+	{
+		return present.stream().toArray();
+	}
+
+	/* The values by pronom. */
+	public HashMap<String, Double> toMap()
+	{
+		HashMap<String, Double> map = new HashMap<String, Double>();
+		for (int id = present.nextSetBit(0); id >= 0;
+			id = present.nextSetBit(id + 1))
+		{
+			map.put(PronomRegistry.pronom(id), values[id]);
+		}
+		return map;
+	}
+}
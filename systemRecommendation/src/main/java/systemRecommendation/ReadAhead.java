@@ -0,0 +1,356 @@
+/* ReadAhead.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/* Reads the Siegfried outputs of a corpus ahead on a dedicated thread
+ * while the calling thread parses the current one, so the disk and the
+ * CPU are busy at the same time.
+ * 
+ * DEPTH	the number of outputs read ahead at most.
+ * 			Fast local disks need only a few, network file systems
+ * 			with high latency benefit from more.
+ * 
+ * BUDGET	the number of bytes the outputs read ahead may take at most.
+ * 			Outputs larger than the budget as well as archives are not
+ * 			read ahead but streamed right from the disk when their turn
+ * 			comes. The outputs are read into a few buffers within the
+ * 			budget, which are reused for the outputs to come.
+ * 
+ * Use disks(root) to stream the disks of the corpus at ROOT just like
+ * SiegfriedCorpus.disks(root) does.
+ */
+public class ReadAhead
+{
+	/* A few outputs and 64 MB suit most local disks. */
+	public static final ReadAhead DEFAULT = new ReadAhead(8, 64L << 20);
+
+	private final int depth;
+	private final int budget;
+
+	public ReadAhead(int depth, long budget)
+	{
+		if (depth < 1 || budget < 1)
+		{
+			throw new IllegalArgumentException(
+				"Depth and budget of the read ahead have to be positive.");
+		}
+		this.depth = depth;
+		this.budget = (int) Math.min(budget, Integer.MAX_VALUE);
+	}
+
+	public int depth() { return depth; }
+
+	public long budget() { return budget; }
+
+	/* The buffers the outputs are read into. Buffers handed back are
+	 * reused, so reading ahead hardly allocates once the largest outputs
+	 * have been seen. All buffers, whether in use or not, take BUDGET
+	 * bytes at most. Too small free buffers are dropped to make room
+	 * for larger ones. */
+	static class Buffers
+	{
+		private final int budget;
+
+		/* The buffers handed back, no more than were in use at once. */
+		private final ArrayDeque<byte[]> free = new ArrayDeque<byte[]>();
+
+		/* Bytes taken by all buffers. */
+		private long allocated = 0;
+
+		Buffers(int budget) { this.budget = budget; }
+
+		/* Returns a buffer of at least SIZE bytes, SIZE being at most
+		 * the budget. Blocks while the buffers in use take too many bytes.
+		 */
+		synchronized byte[] take(int size) throws InterruptedException
+		{
+			while (true)
+			{
+				/* The smallest free buffer that fits. */
+				byte[] best = null;
+				for (byte[] buffer : free)
+				{
+					if (buffer.length >= size
+						&& (best == null || buffer.length < best.length))
+					{
+						best = buffer;
+					}
+				}
+				if (best != null)
+				{
+					free.remove(best);
+					return best;
+				}
+
+				while (allocated + size > budget && !free.isEmpty())
+				{
+					allocated -= free.poll().length;
+				}
+				if (allocated + size <= budget)
+				{
+					/* Rounded up to the next power of two, so the buffer
+					 * suits slightly larger outputs as well. */
+					int capacity = (int) Math.min(budget - allocated,
+						Math.max(size, Long.highestOneBit(size - 1L) << 1));
+					allocated += capacity;
+					return new byte[capacity];
+				}
+				wait();
+			}
+		}
+
+		/* Hands a buffer back for the outputs to come. */
+		synchronized void give(byte[] buffer)
+		{
+			free.push(buffer);
+			notifyAll();
+		}
+
+		/* Bytes taken by all buffers, whether in use or not. */
+		synchronized long allocated() { return allocated; }
+	}
+
+	/* An output handed over from the reader thread. */
+	private static class Output
+	{
+		/* Marks the end of the corpus. */
+		private static final Output END = new Output(null, null, 0, null);
+
+		private final Path path;
+
+		/* The buffer holding the content, or null if it's to be streamed
+		 * from the disk. */
+		private final byte[] buffer;
+
+		/* Bytes of the buffer taken by the content. */
+		private final int length;
+
+		/* Reading failed. */
+		private final IOException exception;
+
+		private Output(Path path, byte[] buffer, int length,
+			IOException exception)
+		{
+			this.path = path;
+			this.buffer = buffer;
+			this.length = length;
+			this.exception = exception;
+		}
+	}
+
+	/* This function streams the disks of all Siegfried outputs in the
+	 * directory ROOT and its subdirectories in the same order as
+	 * SiegfriedCorpus.disks(root). Corrupted outputs are skipped.
+	 * Make sure to close the stream.
+	 */
+	public Stream<Disk> disks(Path root) throws IOException
+	{
+		return disks(root, null);
+	}
+
+	/* Same as above, yet copies and re-scans of outputs are skipped
+	 * (see Deduplication). Copies aren't even read ahead. */
+	public Stream<Disk> disks(Path root, Deduplication deduplication)
+		throws IOException
+	{
+		Stream<Path> files = SiegfriedCorpus.files(root, deduplication);
+		BlockingQueue<Output> queue = new ArrayBlockingQueue<Output>(depth);
+		Buffers buffers = new Buffers(budget);
+
+		Thread reader = new Thread(() ->
+		{
+			try
+			{
+				Output last = Output.END;
+				try
+				{
+					Iterator<Path> paths = files.iterator();
+					while (paths.hasNext())
+					{
+						queue.put(read(paths.next(), buffers));
+					}
+				}
+				/* Walking the directory failed. */
+				catch(UncheckedIOException e)
+				{
+					last = new Output(null, null, 0, e.getCause());
+				}
+				queue.put(last);
+			}
+			catch(InterruptedException e)
+			{
+				/* The stream has been closed. */
+			}
+			finally
+			{
+				files.close();
+			}
+		}, "ReadAhead");
+
+		/* Don't keep the program alive if a stream isn't closed. */
+		reader.setDaemon(true);
+		reader.start();
+
+		Iterator<List<Disk>> results = new Iterator<List<Disk>>()
+		{
+			private Output next = null;
+
+			@Override
+			public boolean hasNext()
+			{
+				if (next == null)
+				{
+					try
+					{
+						next = queue.take();
+					}
+					catch(InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+						throw new UncheckedIOException(new InterruptedIOException(
+							"Interrupted while reading " + root));
+					}
+				}
+				if (next.exception != null)
+				{
+					throw new UncheckedIOException(next.exception);
+				}
+				return next != Output.END;
+			}
+
+			@Override
+			public List<Disk> next()
+			{
+				if (!hasNext()) { throw new NoSuchElementException(); }
+				Output output = next;
+				next = null;
+
+				try
+				{
+					return parse(root, output);
+				}
+				catch(IOException e)
+				{
+					throw new UncheckedIOException(e);
+				}
+				finally
+				{
+					/* Let the reader go on. */
+					if (output.buffer != null) { buffers.give(output.buffer); }
+				}
+			}
+		};
+
+		return SiegfriedCorpus.distinct(StreamSupport.stream(
+				Spliterators.spliteratorUnknownSize(results,
+					Spliterator.ORDERED | Spliterator.NONNULL), false)
+			.flatMap(List::stream)
+			.onClose(reader::interrupt), deduplication);
+	}
+
+	/* Reads an output into one of the BUFFERS if it fits into the budget.
+	 * Blocks while the outputs read ahead take too many bytes. */
+	private Output read(Path path, Buffers buffers)
+		throws InterruptedException
+	{
+		try
+		{
+			long size = Files.size(path);
+			if (size > budget
+				|| SiegfriedArchive.isArchive(path.getFileName().toString()))
+			{
+				return new Output(path, null, 0, null);
+			}
+
+			/* Empty outputs take a byte of the budget anyway. */
+			byte[] buffer = buffers.take((int) Math.max(1, size));
+			try (InputStream stream = Files.newInputStream(path))
+			{
+				/* An output grown meanwhile is cut off at its former size. */
+				int length = 0;
+				int read;
+				while (length < size && (read = stream.read(buffer, length,
+					(int) size - length)) >= 0)
+				{
+					length += read;
+				}
+				return new Output(path, buffer, length, null);
+			}
+			catch(IOException e)
+			{
+				buffers.give(buffer);
+				throw e;
+			}
+		}
+		catch(IOException e)
+		{
+			return new Output(path, null, 0, e);
+		}
+	}
+
+	/* Parses an output, either from memory or right from the disk. */
+	private static List<Disk> parse(Path root, Output output)
+		throws IOException
+	{
+		if (output.buffer == null)
+		{
+			return SiegfriedCorpus.extractDisks(root, output.path);
+		}
+
+		try (InputStream stream
+			= new ByteArrayInputStream(output.buffer, 0, output.length))
+		{
+			return Collections.singletonList(
+				ExtractSiegfriedData.extractSiegfriedDataFromStream(stream,
+					SiegfriedCorpus.diskName(root, output.path)));
+		}
+		/* File content is corrupted. Proceed with next file. */
+		catch(org.json.JSONException e)
+		{
+			return Collections.emptyList();
+		}
+	}
+}
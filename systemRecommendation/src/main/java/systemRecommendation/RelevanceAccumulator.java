@@ -0,0 +1,88 @@
+/* RelevanceAccumulator.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import java.util.function.Consumer;
+
+/* Accumulates the relevances of the pronoms of a disk file by file,
+ * so they can be calculated while its Siegfried output is still being
+ * read, without keeping the files in memory.
+ * 
+ * The files are weighted just like PronomRelevance does: by the root of
+ * their size, penalized by their depth, shared between their matches.
+ * Since the share of a file depends on the sizes of all files, the sums
+ * are only divided by the total size in the end.
+ * 
+ * Hand it to ExtractSiegfriedData.streamSiegfriedOutput as consumer and
+ * then to PronomRelevance.pronomRelevances.
+ */
+public class RelevanceAccumulator implements Consumer<SiegfriedFile>
+{
+	private final double depthPenalty;
+
+	/* The penalized sizes of the matches of each pronom. */
+	private final PronomValues sizes = new PronomValues();
+
+	private double sumOfPenalizedSizes = 0;
+
+	private int files = 0;
+
+	/* DEPTHPENALTY	see PronomRelevance.pronomRelevances */
+	public RelevanceAccumulator(double depthPenalty)
+	{
+		this.depthPenalty = depthPenalty;
+	}
+
+	@Override
+	public void accept(SiegfriedFile file)
+	{
+		int size = PronomRelevance.penalizedSize(file, depthPenalty);
+		sumOfPenalizedSizes += size;
+		files++;
+
+		/* The size of the file is shared between all its matches. */
+		for (PronomMatch match : file.matches())
+		{
+			sizes.add(match.format(), ((double) size) / file.matchCount());
+		}
+	}
+
+	/* The number of files accumulated so far. */
+	public int fileCount() { return files; }
+
+	/* The summed relevances of the matches of each pronom, given a
+	 * relevance of 1 for the whole disk. */
+	public PronomValues matchRelevances()
+	{
+		PronomValues relevances = new PronomValues();
+		for (int pronom : sizes.ids())
+		{
+			relevances.put(pronom, sizes.get(pronom) / sumOfPenalizedSizes);
+		}
+		return relevances;
+	}
+}
@@ -0,0 +1,99 @@
+/* RelevanceResult.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import java.util.List;
+
+/* The relevances of the files and matches of a disk for a given depth
+ * penalty, as calculated by PronomRelevance.fileRelevances.
+ * 
+ * The values are kept here instead of the files and matches, so the
+ * same disk can be scored with different depth penalties or by several
+ * threads at once. The disk is only read.
+ */
+public final class RelevanceResult
+{
+	private final Disk disk;
+
+	/* The size of each file penalized by its depth, in the order of
+	 * disk.files. */
+	private final int[] penalizedSizes;
+
+	/* The relevance of each file, its share of all penalized sizes. */
+	private final double[] fileRelevances;
+
+	RelevanceResult(Disk disk, int[] penalizedSizes, double[] fileRelevances)
+	{
+		this.disk = disk;
+		this.penalizedSizes = penalizedSizes;
+		this.fileRelevances = fileRelevances;
+	}
+
+	public Disk disk() { return disk; }
+
+	/* The penalized size of the file at the given index of disk.files. */
+	public int penalizedSize(int file) { return penalizedSizes[file]; }
+
+	/* The relevance of the file at the given index of disk.files. */
+	public double fileRelevance(int file) { return fileRelevances[file]; }
+
+	/* The relevance of a match of a file. The relevance of the file is
+	 * shared equally between its matches. */
+	public double matchRelevance(int file, int match)
+	{
+		int matches = disk.files[file].matchCount();
+		if (match < 0 || match >= matches)
+		{
+			throw new IndexOutOfBoundsException("Match " + match
+				+ " of file " + file);
+		}
+		return fileRelevances[file] / matches;
+	}
+
+	/* This function sums up the relevances of all matches
+	 * of the same pronom across the disk.
+	 * 
+	 * RETURNS	The relevances for each pronom.
+	 */
+	public PronomValues matchRelevances()
+	{
+		PronomValues relevances = new PronomValues();
+		
+		/* For all matches of all files:
+		 * Sum up the relevances for each pronom. */
+		for (int i = 0; i < disk.files.length; i++)
+		{
+			List<PronomMatch> matches = disk.files[i].matches();
+			for (PronomMatch match : matches)
+			{
+				relevances.add(match.format(),
+					fileRelevances[i] / matches.size());
+			}
+		}
+		return relevances;
+	}
+}
@@ -0,0 +1,568 @@
+/* SiegfriedArchive.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+/* Instances of this class read Siegfried outputs that are compressed
+ * or bundled in an archive, without unpacking them to disk.
+ * 
+ * Supported are gzip (.gz), zip (.zip) and tar (.tar, .tar.gz, .tgz).
+ * A gzipped output is a single entry named like the file without '.gz'.
+ * Entries of archives that are gzipped themselves are decompressed
+ * as well.
+ * 
+ * Use extractDisks(path) to get a disk for each entry,
+ * streamDisks(path) to read them lazily or
+ * open(path) to walk through the entries one after the other.
+ */
+public abstract class SiegfriedArchive implements Closeable
+{
+	/* The (decompressed) content of the archive file. */
+	protected final InputStream stream;
+
+	/* Name and content of the current entry. */
+	private String entryName = null;
+	private InputStream entry = null;
+
+	protected SiegfriedArchive(InputStream stream)
+	{
+		this.stream = stream;
+	}
+
+	/* Checks by its name whether a file is compressed or an archive. */
+	public static boolean isArchive(String name)
+	{
+		String lower = name.toLowerCase();
+		return lower.endsWith(".gz") || lower.endsWith(".tgz")
+			|| lower.endsWith(".zip") || lower.endsWith(".tar");
+	}
+
+	/* Opens the archive at PATH.
+	 * Make sure to close it once you're done. */
+	public static SiegfriedArchive open(Path path) throws IOException
+	{
+		String name = path.getFileName().toString();
+		String lower = name.toLowerCase();
+		InputStream file
+			= new BufferedInputStream(Files.newInputStream(path), 1 << 16);
+
+		try
+		{
+			if (lower.endsWith(".zip")) { return new Zip(file); }
+			if (lower.endsWith(".tar")) { return new Tar(file); }
+			if (lower.endsWith(".tar.gz") || lower.endsWith(".tgz"))
+			{
+				return new Tar(new GZIPInputStream(file, 1 << 16));
+			}
+			return new Gzip(new GZIPInputStream(file, 1 << 16),
+				name.substring(0, name.length() - 3));
+		}
+		catch(IOException e)
+		{
+			file.close();
+			throw e;
+		}
+	}
+
+	/* This function extracts the pronoms of all Siegfried outputs
+	 * in the archive at PATH.
+	 * 
+	 * RETURNS	a disk for each output, named after its entry.
+	 * 			Corrupted outputs are skipped. If the archive itself
+	 * 			is corrupted, the disks read up to the flaw are returned.
+	 */
+	public static ArrayList<Disk> extractDisks(Path path) throws IOException
+	{
+		try (Stream<Disk> disks = streamDisks(path))
+		{
+			return disks.collect(Collectors.toCollection(ArrayList::new));
+		}
+		catch(UncheckedIOException e)
+		{
+			throw e.getCause();
+		}
+	}
+
+	/* Same as extractDisks(path), yet each entry is only read when the
+	 * stream gets to it. Make sure to close the stream.
+	 * 
+	 * EXCEPTION	UncheckedIOException if reading fails while streaming.
+	 */
+	public static Stream<Disk> streamDisks(Path path) throws IOException
+	{
+		SiegfriedArchive archive = open(path);
+
+		Iterator<Disk> disks = new Iterator<Disk>()
+		{
+			private Disk next = null;
+
+			@Override
+			public boolean hasNext()
+			{
+				try
+				{
+					while (next == null && archive.nextEntry())
+					{
+						try
+						{
+							next = archive.extractDisk();
+						}
+						/* Entry content is corrupted.
+						 * Proceed with next entry. */
+						catch(org.json.JSONException e)
+						{
+							continue;
+						}
+					}
+				}
+				catch(ZipException | EOFException | SiegfriedFormatException e)
+				{
+					/* The archive is corrupted or truncated, e.g. a flawed
+					 * tar header. Keep what could be read. */
+				}
+				catch(IOException e)
+				{
+					throw new UncheckedIOException(e);
+				}
+				return next != null;
+			}
+
+			@Override
+			public Disk next()
+			{
+				if (!hasNext()) { throw new NoSuchElementException(); }
+				Disk disk = next;
+				next = null;
+				return disk;
+			}
+		};
+
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+				disks, Spliterator.ORDERED | Spliterator.NONNULL), false)
+			.onClose(() ->
+			{
+				try
+				{
+					archive.close();
+				}
+				catch(IOException e)
+				{
+					throw new UncheckedIOException(e);
+				}
+			});
+	}
+
+	/* Moves on to the next entry.
+	 * Returns false if there are no more entries. */
+	public boolean nextEntry() throws IOException
+	{
+		String name = nextEntryName();
+		if (name == null)
+		{
+			entryName = null;
+			entry = null;
+			return false;
+		}
+
+		entry = new FilterInputStream(stream)
+		{
+			/* The entry must not close the archive. */
+			@Override
+			public void close() {}
+		};
+
+		/* Entries may be compressed themselves. */
+		if (name.toLowerCase().endsWith(".gz"))
+		{
+			entry = new GZIPInputStream(entry, 1 << 16);
+			name = name.substring(0, name.length() - 3);
+		}
+		entryName = name;
+		return true;
+	}
+
+	/* The name of the current entry (its path within the archive). */
+	public String entryName() { return entryName; }
+
+	/* The content of the current entry. It is only valid until the next
+	 * call of nextEntry and doesn't need to be closed. */
+	public InputStream entry() { return entry; }
+
+	/* Extracts the pronoms of the current entry. */
+	public Disk extractDisk() throws IOException
+	{
+		return ExtractSiegfriedData.extractSiegfriedDataFromStream(
+			entry, entryName);
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		stream.close();
+	}
+
+	/* Skips the rest of the current entry and positions the stream at the
+	 * start of the next one.
+	 * Returns the name of the next regular entry or null at the end. */
+	protected abstract String nextEntryName() throws IOException;
+
+
+	/* A single gzipped Siegfried output. */
+	private static class Gzip extends SiegfriedArchive
+	{
+		private String name;
+
+		private Gzip(InputStream stream, String name)
+		{
+			super(stream);
+			this.name = name;
+		}
+
+		@Override
+		protected String nextEntryName()
+		{
+			/* There's only a single entry. */
+			String next = name;
+			name = null;
+			return next;
+		}
+	}
+
+
+	/* A zip archive of Siegfried outputs. */
+	private static class Zip extends SiegfriedArchive
+	{
+		private Zip(InputStream stream)
+		{
+			super(new ZipInputStream(stream, StandardCharsets.UTF_8));
+		}
+
+		@Override
+		protected String nextEntryName() throws IOException
+		{
+			ZipEntry next;
+			do
+			{
+				next = ((ZipInputStream) stream).getNextEntry();
+			}
+			while (next != null && next.isDirectory());
+
+			return (next == null ? null : next.getName());
+		}
+	}
+
+
+	/* A tar archive of Siegfried outputs.
+	 * Understands ustar headers including GNU long names and pax paths.
+	 */
+	private static class Tar extends SiegfriedArchive
+	{
+		private static final int BLOCK = 512;
+
+		/* The padding following the current entry. The bytes of the entry
+		 * itself not yet read are the limit of the bounded stream
+		 * while 'limited' is true. */
+		private long remaining = 0;
+		private boolean limited = false;
+
+		private final byte[] header = new byte[BLOCK];
+
+		private Tar(InputStream stream)
+		{
+			super(new Bounded(stream));
+		}
+
+		@Override
+		protected String nextEntryName() throws IOException
+		{
+			Bounded bounded = (Bounded) stream;
+
+			/* Name given by a preceding GNU or pax header. */
+			String longName = null;
+
+			while (true)
+			{
+				/* Skip the rest of the previous entry, which may not have
+				 * been read to its end, e.g. if its output is corrupted. */
+				long unread = (limited ? bounded.limit : 0);
+				bounded.limit = Long.MAX_VALUE;
+				limited = false;
+				skipFully(bounded, unread + remaining);
+				remaining = 0;
+
+				if (!readBlock(bounded)) { return null; }
+
+				/* An empty block marks the end of the archive. */
+				if (isZero(header)) { return null; }
+
+				long size = parseSize(header, 124, 12);
+				char type = (char) header[156];
+				long padded = (size + BLOCK - 1) / BLOCK * BLOCK;
+
+				if (type == 'L' || type == 'x')
+				{
+					/* The content names the next entry. */
+					byte[] content = new byte[(int) size];
+					readFully(bounded, content);
+					skipFully(bounded, padded - size);
+					longName = (type == 'L' ? cString(content, 0, content.length)
+						: paxPath(content, longName));
+					continue;
+				}
+
+				remaining = padded;
+
+				/* Only regular files are Siegfried outputs. */
+				if (type != '0' && type != 0 && type != '7')
+				{
+					longName = null;
+					continue;
+				}
+
+				String name = longName;
+				if (name == null)
+				{
+					name = cString(header, 0, 100);
+					String prefix = cString(header, 345, 155);
+					if (isUstar(header) && !prefix.isEmpty())
+					{
+						name = prefix + "/" + name;
+					}
+				}
+
+				/* The entry stream ends with the entry. */
+				bounded.limit = size;
+				limited = true;
+				remaining = padded - size;
+				return name;
+			}
+		}
+
+		private boolean readBlock(InputStream in) throws IOException
+		{
+			int length = 0;
+			while (length < BLOCK)
+			{
+				int read = in.read(header, length, BLOCK - length);
+				if (read < 0)
+				{
+					if (length == 0) { return false; }
+					throw new EOFException("Truncated tar header");
+				}
+				length += read;
+			}
+			return true;
+		}
+
+		private static void readFully(InputStream in, byte[] content)
+			throws IOException
+		{
+			int length = 0;
+			while (length < content.length)
+			{
+				int read = in.read(content, length, content.length - length);
+				if (read < 0) { throw new EOFException("Truncated tar entry"); }
+				length += read;
+			}
+		}
+
+		private static void skipFully(InputStream in, long count)
+			throws IOException
+		{
+			while (count > 0)
+			{
+				long skipped = in.skip(count);
+				if (skipped <= 0)
+				{
+					if (in.read() < 0)
+					{
+						throw new EOFException("Truncated tar entry");
+					}
+					skipped = 1;
+				}
+				count -= skipped;
+			}
+		}
+
+		private static boolean isZero(byte[] block)
+		{
+			for (byte b : block)
+			{
+				if (b != 0) { return false; }
+			}
+			return true;
+		}
+
+		private static boolean isUstar(byte[] block)
+		{
+			return block[257] == 'u' && block[258] == 's' && block[259] == 't'
+				&& block[260] == 'a' && block[261] == 'r';
+		}
+
+		/* Sizes are octal numbers, or base-256 for huge files. */
+		private static long parseSize(byte[] block, int offset, int length)
+		{
+			if ((block[offset] & 0x80) != 0)
+			{
+				long size = block[offset] & 0x7F;
+				for (int i = offset + 1; i < offset + length; i++)
+				{
+					size = (size << 8) | (block[i] & 0xFF);
+				}
+				return size;
+			}
+
+			long size = 0;
+			for (int i = offset; i < offset + length; i++)
+			{
+				byte b = block[i];
+				if (b == 0 || b == ' ')
+				{
+					if (size == 0) { continue; }
+					break;
+				}
+				if (b < '0' || b > '7')
+				{
+					throw new SiegfriedFormatException("Flawed tar header");
+				}
+				size = size * 8 + (b - '0');
+			}
+			return size;
+		}
+
+		/* A zero terminated string. */
+		private static String cString(byte[] block, int offset, int length)
+		{
+			int end = offset;
+			while (end < offset + length && block[end] != 0) { end++; }
+			return new String(block, offset, end - offset,
+				StandardCharsets.UTF_8);
+		}
+
+		/* Finds the path in the records of a pax header,
+		 * each being "length key=value\n". */
+		private static String paxPath(byte[] content, String fallback)
+		{
+			String records = new String(content, StandardCharsets.UTF_8);
+			int start = 0;
+			while (start < records.length())
+			{
+				int space = records.indexOf(' ', start);
+				if (space < 0) { break; }
+				int length;
+				try
+				{
+					length = Integer.parseInt(records.substring(start, space));
+				}
+				catch(NumberFormatException e)
+				{
+					break;
+				}
+				if (length <= 0 || start + length > records.length()) { break; }
+
+				String record = records.substring(space + 1, start + length - 1);
+				if (record.startsWith("path="))
+				{
+					return record.substring(5);
+				}
+				start += length;
+			}
+			return fallback;
+		}
+	}
+
+
+	/* Ends after a given number of bytes, so the entries of a tar archive
+	 * look like streams of their own. */
+	private static class Bounded extends FilterInputStream
+	{
+		private long limit = Long.MAX_VALUE;
+
+		private Bounded(InputStream in)
+		{
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			if (limit <= 0) { return -1; }
+			int b = in.read();
+			if (b >= 0) { limit--; }
+			return b;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length)
+			throws IOException
+		{
+			if (limit <= 0) { return -1; }
+			int read = in.read(buffer, offset, (int) Math.min(length, limit));
+			if (read > 0) { limit -= read; }
+			return read;
+		}
+
+		@Override
+		public long skip(long count) throws IOException
+		{
+			long skipped = in.skip(Math.min(count, limit));
+			if (skipped > 0) { limit -= skipped; }
+			return skipped;
+		}
+
+		@Override
+		public int available() throws IOException
+		{
+			return (int) Math.min(in.available(), limit);
+		}
+
+		@Override
+		public boolean markSupported() { return false; }
+	}
+}
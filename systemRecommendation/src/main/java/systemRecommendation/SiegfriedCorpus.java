@@ -0,0 +1,381 @@
+/* SiegfriedCorpus.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.ZipException;
+
+/* A corpus is a directory of Siegfried outputs, possibly nested in
+ * subdirectories, compressed or bundled in archives.
+ * 
+ * In contrast to ExtractSiegfriedData.extractPronoms(directory), the
+ * disks of a corpus are read lazily, one after the other, so only the
+ * disks currently in use are held in memory.
+ * 
+ * Use disks(root) to stream the disks of the corpus at ROOT.
+ * 
+ * Use disks(root, workers) to have them parsed by several threads.
+ * 
+ * Use disks(root, workers, deduplication) to skip duplicate outputs.
+ * 
+ * The streams must be closed, best by try-with-resources. I/O errors
+ * while streaming are thrown as UncheckedIOException.
+ */
+public class SiegfriedCorpus
+{
+	/* Number of disks of an output a worker parses ahead of the
+	 * consumer (see parse). */
+	private static final int AHEAD = 2;
+
+	/* Marks the end of the disks of an output. */
+	private static final Object DONE = new Object();
+
+	/* This function streams the disks of all Siegfried outputs
+	 * in the directory ROOT and its subdirectories.
+	 * 
+	 * RETURNS	a disk for each output, named after its path relative
+	 * 			to ROOT, a disk for each entry of an archive, named after
+	 * 			the entry. Corrupted outputs are skipped.
+	 */
+	public static Stream<Disk> disks(Path root) throws IOException
+	{
+		return disks(root, 1, null);
+	}
+
+	/* Same as disks(root), yet the outputs are parsed by the given number
+	 * of threads. The disks are still streamed in the same order and only
+	 * a few outputs per thread are parsed ahead of the consumer.
+	 * An archive is parsed by a single thread, entry by entry, and only
+	 * a few of its disks are parsed ahead as well.
+	 */
+	public static Stream<Disk> disks(Path root, int workers)
+		throws IOException
+	{
+		return disks(root, workers, null);
+	}
+
+	/* Same as disks(root, workers), yet copies and re-scans of outputs
+	 * are skipped (see Deduplication). Copies aren't even parsed.
+	 * 
+	 * DEDUPLICATION	remembers the outputs seen and counts the
+	 * 					duplicates. No outputs are skipped if null.
+	 */
+	public static Stream<Disk> disks(Path root, int workers,
+		Deduplication deduplication) throws IOException
+	{
+		Stream<Path> files = files(root, deduplication);
+		Stream<Disk> disks = (workers <= 1 ? disks(root, files)
+			: disks(root, files, workers));
+		return distinct(disks, deduplication);
+	}
+
+	/* Parses the outputs one after the other. */
+	private static Stream<Disk> disks(Path root, Stream<Path> files)
+	{
+		return files.flatMap(path -> disksOfFile(root, path))
+			.onClose(files::close);
+	}
+
+	/* Parses the outputs by several threads. */
+	private static Stream<Disk> disks(Path root, Stream<Path> files,
+		int workers)
+	{
+		Iterator<Path> paths = files.iterator();
+
+		ExecutorService executor = Executors.newFixedThreadPool(workers,
+			runnable ->
+			{
+				/* Don't keep the program alive if a stream isn't closed. */
+				Thread thread = new Thread(runnable, "SiegfriedCorpus");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+		/* The disks of the outputs being parsed, in the order of the walk,
+		 * each followed by DONE or the failure parsing the output. */
+		ArrayDeque<BlockingQueue<Object>> pending
+			= new ArrayDeque<BlockingQueue<Object>>();
+
+		Iterator<Disk> results = new Iterator<Disk>()
+		{
+			private Disk next = null;
+
+			@Override
+			public boolean hasNext()
+			{
+				while (next == null)
+				{
+					while (pending.size() < 2 * workers && paths.hasNext())
+					{
+						pending.add(parse(executor, root, paths.next()));
+					}
+					if (pending.isEmpty()) { return false; }
+
+					Object disk;
+					try
+					{
+						disk = pending.peek().take();
+					}
+					catch(InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+						throw new UncheckedIOException(
+							new InterruptedIOException(
+								"Interrupted while parsing " + root));
+					}
+
+					if (disk == DONE) { pending.poll(); }
+					else if (disk instanceof RuntimeException)
+					{
+						throw (RuntimeException) disk;
+					}
+					else if (disk instanceof Error) { throw (Error) disk; }
+					else { next = (Disk) disk; }
+				}
+				return true;
+			}
+
+			@Override
+			public Disk next()
+			{
+				if (!hasNext()) { throw new NoSuchElementException(); }
+				Disk disk = next;
+				next = null;
+				return disk;
+			}
+		};
+
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+				results, Spliterator.ORDERED | Spliterator.NONNULL), false)
+			.onClose(() ->
+			{
+				/* Don't keep parsing if we're giving up early. */
+				executor.shutdownNow();
+				files.close();
+			});
+	}
+
+	/* Has the disks of PATH parsed by the executor and handed over one
+	 * by one. The worker waits while AHEAD disks haven't been taken yet,
+	 * so however many entries an archive has, only a few of them are held
+	 * at once.
+	 * 
+	 * RETURNS	the queue the disks are handed over by, followed by DONE,
+	 * 			or the failure parsing the output.
+	 */
+	private static BlockingQueue<Object> parse(ExecutorService executor,
+		Path root, Path path)
+	{
+		BlockingQueue<Object> disks = new ArrayBlockingQueue<Object>(AHEAD);
+		executor.execute(() ->
+		{
+			Object end = DONE;
+			try (Stream<Disk> parsed = disksOfFile(root, path))
+			{
+				Iterator<Disk> iterator = parsed.iterator();
+				while (iterator.hasNext()) { disks.put(iterator.next()); }
+			}
+			catch(InterruptedException e)
+			{
+				/* The corpus stream has been closed. */
+				return;
+			}
+			catch(RuntimeException | Error e)
+			{
+				end = e;
+			}
+
+			try
+			{
+				disks.put(end);
+			}
+			catch(InterruptedException e)
+			{
+				/* The corpus stream has been closed. */
+			}
+		});
+		return disks;
+	}
+
+	/* All regular files below ROOT. */
+	static Stream<Path> files(Path root) throws IOException
+	{
+		return Files.walk(root).filter(Files::isRegularFile);
+	}
+
+	/* All regular files below ROOT except for copies of files before. */
+	static Stream<Path> files(Path root, Deduplication deduplication)
+		throws IOException
+	{
+		if (deduplication == null) { return files(root); }
+
+		return files(root).filter(path ->
+		{
+			try
+			{
+				return !deduplication.isCopy(path);
+			}
+			catch(IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	/* Skips the re-scans of disks before. */
+	static Stream<Disk> distinct(Stream<Disk> disks,
+		Deduplication deduplication)
+	{
+		if (deduplication == null) { return disks; }
+		return disks.filter(disk -> !deduplication.isRescan(disk));
+	}
+
+	/* The name of a disk is its path relative to the root, using '/'
+	 * whatever the platform. */
+	static String diskName(Path root, Path path)
+	{
+		Path relative = root.relativize(path);
+		StringBuilder name = new StringBuilder();
+		for (Path part : relative)
+		{
+			if (name.length() > 0) { name.append('/'); }
+			name.append(part.toString());
+		}
+		return name.toString();
+	}
+
+	/* Lazily reads the disks of a single file. */
+	private static Stream<Disk> disksOfFile(Path root, Path path)
+	{
+		try
+		{
+			if (SiegfriedArchive.isArchive(path.getFileName().toString()))
+			{
+				return skipCorrupted(SiegfriedArchive.streamDisks(path));
+			}
+			return extractDisks(root, path).stream();
+		}
+		/* Not an archive after all. Proceed with next file. */
+		catch(ZipException e)
+		{
+			return Stream.empty();
+		}
+		catch(IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/* The disks of an archive up to the first one whose corruption the
+	 * archive didn't catch itself. Corrupted entries are skipped by the
+	 * archive already, so this is merely the last resort keeping a single
+	 * archive from aborting the whole corpus. */
+	private static Stream<Disk> skipCorrupted(Stream<Disk> disks)
+	{
+		Iterator<Disk> iterator = disks.iterator();
+		Iterator<Disk> intact = new Iterator<Disk>()
+		{
+			private boolean corrupted = false;
+
+			@Override
+			public boolean hasNext()
+			{
+				if (corrupted) { return false; }
+				try
+				{
+					return iterator.hasNext();
+				}
+				catch(org.json.JSONException e)
+				{
+					corrupted = true;
+					return false;
+				}
+			}
+
+			@Override
+			public Disk next()
+			{
+				if (!hasNext()) { throw new NoSuchElementException(); }
+				return iterator.next();
+			}
+		};
+
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+				intact, Spliterator.ORDERED | Spliterator.NONNULL), false)
+			.onClose(disks::close);
+	}
+
+	/* Reads the disks of a single file at once. */
+	static List<Disk> extractDisks(Path root, Path path)
+		throws IOException
+	{
+		if (SiegfriedArchive.isArchive(path.getFileName().toString()))
+		{
+			try
+			{
+				return SiegfriedArchive.extractDisks(path);
+			}
+			/* The archive is corrupted in a way it didn't catch itself,
+			 * or not an archive at all. Proceed with next file. */
+			catch(org.json.JSONException | ZipException e)
+			{
+				return Collections.emptyList();
+			}
+		}
+
+		try
+		{
+			List<Disk> disks = new ArrayList<Disk>(1);
+			disks.add(ExtractSiegfriedData.extractSiegfriedDataFromFile(
+				path.toString(), diskName(root, path)));
+			return disks;
+		}
+		/* File content is corrupted. Proceed with next file. */
+		catch(org.json.JSONException e)
+		{
+			return Collections.emptyList();
+		}
+	}
+}
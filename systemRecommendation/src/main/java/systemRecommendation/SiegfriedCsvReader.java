@@ -0,0 +1,131 @@
+/* SiegfriedCsvReader.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/* This class reads the CSV output of Siegfried (sf -csv).
+ * 
+ * The first line names the columns, e.g.
+ * filename,filesize,modified,errors,namespace,id,format,version,mime,...
+ * 
+ * With several identifiers, the columns namespace, id, ... repeat for
+ * each of them. If an identifier has several matches for a file,
+ * Siegfried writes additional lines for the same file.
+ * Those lines are merged into a single SiegfriedFile.
+ */
+public class SiegfriedCsvReader
+{
+	/* This function reads a Siegfried-CSV-output line by line and hands
+	 * each file to the given consumer as soon as all its lines have been
+	 * read.
+	 * 
+	 * EXCEPTION	SiegfriedFormatException if the output is flawed
+	 */
+	public static void streamSiegfriedData(Reader reader,
+		Consumer<SiegfriedFile> consumer) throws IOException
+	{
+		CsvRecordReader records = new CsvRecordReader(reader);
+
+		/* 1. Find the columns we need. */
+		String[] header = records.header();
+		if (header == null) { return; }
+
+		int filenameColumn = -1;
+		int filesizeColumn = -1;
+		ArrayList<Integer> idColumns = new ArrayList<Integer>();
+
+		for (int column = 0; column < header.length; column++)
+		{
+			String name = header[column].trim();
+			if (name.equals("filename")) { filenameColumn = column; }
+			if (name.equals("filesize")) { filesizeColumn = column; }
+			if (name.equals("id")) { idColumns.add(column); }
+		}
+		if (filenameColumn < 0)
+		{
+			throw new SiegfriedFormatException(
+				"The CSV output has no filename column");
+		}
+
+		/* 2. Read the files.
+		 * A file is only handed over once the next one starts,
+		 * since further matches may follow in the next lines. */
+		SiegfriedFile current = null;
+		String[] record;
+
+		while ((record = records.next()) != null)
+		{
+			if (record.length == 1 && record[0].isEmpty()) { continue; }
+			if (record.length <= filenameColumn)
+			{
+				throw new SiegfriedFormatException(
+					"A line of the CSV output has too few columns");
+			}
+
+			String filename = record[filenameColumn];
+			if (current == null || !filename.equals(current.getFilePath()))
+			{
+				if (current != null) { consumer.accept(current); }
+
+				int size = (filesizeColumn >= 0 && filesizeColumn < record.length
+					? CsvRecordReader.parseSize(record[filesizeColumn]) : -1);
+				current = new SiegfriedFile(size, filename);
+			}
+
+			addMatches(current, record, header, idColumns);
+		}
+		if (current != null) { consumer.accept(current); }
+	}
+
+	/* Adds the matches of all identifiers in a line to the given file.
+	 * An identifier without a match for this line leaves its columns
+	 * empty. If it names no id, the match has no pronom (NO_ID). */
+	private static void addMatches(SiegfriedFile file, String[] record,
+		String[] header, ArrayList<Integer> idColumns)
+	{
+		for (int column : idColumns)
+		{
+			String id = (column < record.length ? record[column].trim() : "");
+
+			/* The namespace column precedes the id column. */
+			int namespaceColumn = column - 1;
+			boolean hasNamespace = namespaceColumn >= 0
+				&& header[namespaceColumn].trim().equals("namespace");
+			String namespace = (hasNamespace && namespaceColumn < record.length
+				? record[namespaceColumn].trim() : "");
+
+			if (id.isEmpty() && namespace.isEmpty()) { continue; }
+
+			file.addMatch(id.isEmpty() ? PronomMatch.of(PronomRegistry.NO_ID)
+				: PronomMatch.of(id));
+		}
+	}
+}
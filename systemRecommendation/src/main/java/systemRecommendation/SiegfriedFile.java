@@ -26,37 +26,49 @@
 
 package systemRecommendation;
 
-import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
-/* Represents a single file within a Siegfried output. */
+/* Represents a single file within a Siegfried output.
+ * A file either keeps its path, or, if it was read without paths,
+ * only the depth of its directory, which is all the relevance of
+ * a pronom depends on.
+ * Once read, a file isn't changed anymore, not even by the relevances
+ * (see RelevanceResult), so disks may be shared between threads.
+ */
 public class SiegfriedFile {
 
 	/* Simple file size. */
 	private final int size;
 	
-	/* Size penalized by the depth in the file system. */
-	private int penalizedSize;
-	
 	/* Contains the path to the file.
-	 * (Including the file itself) */
-	private String filePath;
+	 * (Including the file itself)
+	 * Null if the path is unknown or hasn't been kept. */
+	private final String filePath;
 	
-	private String filename;
+	/* The number of entries of the directory of the file,
+	 * see getDirectory. */
+	private final int depth;
 	
-	/* Contains the directory of the file (not including the file itself).
-	 * The path is split into folders and subfolders.
-	 * Note that some of the entries may be empty (""). 
-	 */
-	private String[] directory;
-	
-	/* Contains the pronoms of all possible matches of this file. */
-	private ArrayList<PronomMatch> matches = new ArrayList<PronomMatch>();
+	/* Contains the pronoms of all possible matches of this file.
+	 * The list is immutable and shared with all files having the same
+	 * matches (see PronomMatches). */
+	private List<PronomMatch> matches = PronomMatches.EMPTY;
 	
 	public SiegfriedFile(int fileSize, String filepath)
 	{
 		size = (fileSize >= 0 ? fileSize : -1);
 		filePath = filepath;
-		extractDirectory(filepath);
+		depth = depth(filepath);
+	}
+	
+	/* Constructor for a file without a path, where only the DEPTH
+	 * of its directory is known. */
+	public SiegfriedFile(int fileSize, int depth)
+	{
+		size = (fileSize >= 0 ? fileSize : -1);
+		filePath = null;
+		this.depth = Math.max(depth, 0);
 	}
 	
 	/* Constructor where some matches are already known. */
@@ -65,7 +77,7 @@ public class SiegfriedFile {
 	{
 		size = (fileSize >= 0 ? fileSize : -1);
 		filePath = filepath;
-		extractDirectory(filepath);
+		depth = depth(filepath);
 
 		if (pronomMatches == null) {return; }
 		for (PronomMatch match : pronomMatches)
@@ -77,7 +89,7 @@ public class SiegfriedFile {
 	/* Add a match to the list of matches for this file. */
 	public void addMatch(PronomMatch match)
 	{
-		matches.add(match);
+		matches = PronomMatches.append(matches, match);
 	}
 	
 	/* Get the match of a given index. */
@@ -86,8 +98,8 @@ public class SiegfriedFile {
 		return matches.get(index);
 	}
 	
-	/* Get all the matches. */
-	public ArrayList<PronomMatch> matches() { return matches; }
+	/* Get all the matches. The list can't be changed. */
+	public List<PronomMatch> matches() { return matches; }
 	
 	/* Gets the current number of matches for this file. */
 	public int matchCount() { return matches.size(); }
@@ -95,30 +107,57 @@ public class SiegfriedFile {
 	/* Get the file size. */
 	public int fileSize() { return size; }
 
-	public int getPenalizedSize() { return penalizedSize; }
-	
-	public void setPenalizedSize(int penalizedSize)
+	/* Get the directory (without the filename).
+	 * For a file without a path, the directory consists of DEPTH
+	 * empty entries. */
+	public String[] getDirectory()
 	{
-		this.penalizedSize = penalizedSize;
+		if (filePath == null)
+		{
+			String[] directory = new String[depth];
+			for (int i = 0; i < depth; i++) { directory[i] = ""; }
+			return directory;
+		}
+		return extractDirectory(filePath);
 	}
 	
-	/* Get the directory (without the filename). */
-	public String[] getDirectory() { return directory; }
+	/* Get the number of entries of the directory, which is the length
+	 * of getDirectory, without splitting the path. */
+	public int depth() { return depth; }
 	
 	/* Get the file path (with the filname). */
 	public String getFilePath() { return filePath; }
 	
-	public String getFilename() { return filename; }
+	public String getFilename()
+	{
+		if (filePath == null) { return ""; }
+
+		/* Like split, ignore trailing slashes. */
+		int end = filePath.length();
+		while (end > 0 && filePath.charAt(end - 1) == '/') { end--; }
+		if (end == 0) { return ""; }
+
+		return filePath.substring(filePath.lastIndexOf('/', end - 1) + 1, end);
+	}
 	
-	/* A given relevance value is shared accross all pronom matches. */
-	public void setRelevance(double relevance)
+	/* Returns a file with the same size and matches, yet without
+	 * the path, or this file if it doesn't hold a path anyway. */
+	public SiegfriedFile withoutPath()
 	{
-		if (matches.size() == 0) { return; }
+		if (filePath == null) { return this; }
 
-		for (PronomMatch match : matches)
-		{
-			match.setRelevance(relevance / matches.size());
-		}
+		SiegfriedFile file = new SiegfriedFile(size, depth);
+		file.matches = matches;
+		return file;
+	}
+	
+	/* Wraps CONSUMER, so it receives each file without its path.
+	 * A reader handing its files to the result only keeps a path
+	 * until the file has been read completely. */
+	public static Consumer<SiegfriedFile> withoutPaths(
+		Consumer<SiegfriedFile> consumer)
+	{
+		return file -> consumer.accept(file.withoutPath());
 	}
 	
 	/* If the file size is unknown, it will be set to -1. */
@@ -138,24 +177,38 @@ public class SiegfriedFile {
      *            each representing a subfolder.
      *            Note that the directory may contain empty strings ("").
      */
-    private void extractDirectory(String filepath)
+    private static String[] extractDirectory(String filepath)
     {
-    	if (filepath == null)
-    	{
-    		this.filename = "";
-    		this.directory = new String[] {};
-    		return;
-    	}
-
     	/* Each slash indicates a subfolder. */
     	String[] directory = filepath.split("/");
-    	
-    	/* The filename is the last substring of the filepath. */
-    	this.filename = directory[directory.length -1];
 
     	/* Remove the filename from the directory. */
-    	directory[directory.length -1] = "";
+    	if (directory.length > 0) { directory[directory.length -1] = ""; }
+
+    	return directory;
+    }
 
-    	this.directory = directory;
+    /* The number of entries extractDirectory would return for FILEPATH,
+     * counted without splitting it.
+     * Like split, this ignores trailing slashes, while an empty path
+     * still has a single entry.
+     */
+    static int depth(String filepath)
+    {
+    	if (filepath == null) { return 0; }
+    	if (filepath.isEmpty()) { return 1; }
+
+    	/* Ignore trailing slashes. */
+    	int end = filepath.length();
+    	while (end > 0 && filepath.charAt(end - 1) == '/') { end--; }
+    	if (end == 0) { return 0; }
+
+    	/* Each slash indicates a subfolder. */
+    	int depth = 1;
+    	for (int i = 0; i < end; i++)
+    	{
+    		if (filepath.charAt(i) == '/') { depth++; }
+    	}
+    	return depth;
     }
 }
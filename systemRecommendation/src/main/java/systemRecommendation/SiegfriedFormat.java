@@ -0,0 +1,145 @@
+/* SiegfriedFormat.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/* The formats Siegfried can write its output in,
+ * plus the reports of DROID and FIDO which identify PRONOM formats too.
+ * 
+ * The format of an output is either told by the extension of its name
+ * or guessed from the first bytes of the output itself.
+ */
+public enum SiegfriedFormat
+{
+	/* sf -json */
+	JSON,
+
+	/* sf (default) */
+	YAML,
+
+	/* sf -csv */
+	CSV,
+
+	/* The CSV export of a DROID profile. */
+	DROID,
+
+	/* The default output of FIDO. */
+	FIDO;
+
+	/* Number of bytes looked at to guess the format. */
+	static final int SNIFF_LENGTH = 256;
+
+	/* This function tells the format by the extension of a file name.
+	 * 
+	 * RETURNS	null if the extension isn't one of the formats.
+	 * 			Note that the names of most Siegfried outputs in our
+	 * 			corpus have no such extension (e.g. xy.ISO).
+	 */
+	public static SiegfriedFormat fromName(String name)
+	{
+		if (name == null) { return null; }
+
+		String lower = name.toLowerCase();
+		if (lower.endsWith(".json")) { return JSON; }
+		if (lower.endsWith(".yaml") || lower.endsWith(".yml")) { return YAML; }
+		if (lower.endsWith(".csv")) { return CSV; }
+		return null;
+	}
+
+	/* This function guesses the format from the first bytes of the output.
+	 * The stream has to support mark and reset and is reset afterwards.
+	 * 
+	 * RETURNS	JSON if the output doesn't look like any format at all,
+	 * 			so flawed outputs end up with a JSONException as before.
+	 */
+	public static SiegfriedFormat fromContent(InputStream stream)
+		throws IOException
+	{
+		byte[] head = new byte[SNIFF_LENGTH];
+		int length = 0;
+
+		stream.mark(SNIFF_LENGTH);
+		while (length < SNIFF_LENGTH)
+		{
+			int read = stream.read(head, length, SNIFF_LENGTH - length);
+			if (read < 0) { break; }
+			length += read;
+		}
+		stream.reset();
+
+		return fromHead(new String(head, 0, length, StandardCharsets.UTF_8));
+	}
+
+	/* This function tells the format by the name of the output if possible
+	 * and by its content otherwise. Since DROID and FIDO reports are
+	 * usually named '.csv' as well, the content decides for those.
+	 * The stream has to support mark and reset and is reset afterwards.
+	 */
+	public static SiegfriedFormat detect(String name, InputStream stream)
+		throws IOException
+	{
+		SiegfriedFormat format = fromName(name);
+		if (format != null && format != CSV) { return format; }
+
+		SiegfriedFormat content = fromContent(stream);
+		if (format == CSV && content != DROID && content != FIDO)
+		{
+			return CSV;
+		}
+		return content;
+	}
+
+	/* Guesses the format from the beginning of an output. */
+	static SiegfriedFormat fromHead(String head)
+	{
+		/* Ignore a byte order mark and leading whitespace. */
+		int start = 0;
+		while (start < head.length() && (head.charAt(start) == '\uFEFF'
+			|| Character.isWhitespace(head.charAt(start))))
+		{
+			start++;
+		}
+		head = head.substring(start);
+
+		if (head.startsWith("{")) { return JSON; }
+		if (head.startsWith("---")) { return YAML; }
+		if (head.startsWith("filename,") || head.startsWith("\"filename\",")) 
+		{
+			return CSV;
+		}
+		if (head.startsWith("ID,PARENT_ID,")
+			|| head.startsWith("\"ID\",\"PARENT_ID\","))
+		{
+			return DROID;
+		}
+		if (head.startsWith("OK,") || head.startsWith("KO,")) { return FIDO; }
+		return JSON;
+	}
+}
@@ -0,0 +1,195 @@
+/* SiegfriedYamlReader.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/* This class reads the YAML output of Siegfried (the default of sf).
+ * 
+ * The output is a sequence of YAML documents. The first one describes
+ * the scan, each of the others a single file:
+ * 
+ * ---
+ * filename : 'dir/file.pdf'
+ * filesize : 1024
+ * modified : 2019-01-01T00:00:00+01:00
+ * errors   : 
+ * matches  :
+ *   - ns      : 'pronom'
+ *     id      : 'fmt/18'
+ *     format  : 'Acrobat PDF 1.4 - Portable Document Format'
+ *     ...
+ * 
+ * Only this flat layout written by Siegfried is understood,
+ * not YAML in general.
+ */
+public class SiegfriedYamlReader
+{
+	/* This function reads a Siegfried-YAML-output line by line and hands
+	 * each file to the given consumer as soon as its document ends.
+	 * 
+	 * EXCEPTION	SiegfriedFormatException if the output is flawed
+	 */
+	public static void streamSiegfriedData(Reader reader,
+		Consumer<SiegfriedFile> consumer) throws IOException
+	{
+		BufferedReader lines = (reader instanceof BufferedReader ?
+			(BufferedReader) reader : new BufferedReader(reader, 1 << 16));
+
+		/* The properties of the document read so far. */
+		Document document = new Document();
+		String line;
+
+		while ((line = lines.readLine()) != null)
+		{
+			String trimmed = line.trim();
+			if (trimmed.isEmpty() || trimmed.startsWith("#")) { continue; }
+
+			/* A new document begins, so the last one is complete. */
+			if (trimmed.equals("---") || trimmed.equals("..."))
+			{
+				document.handOver(consumer);
+				document = new Document();
+				continue;
+			}
+
+			/* Items of a list start with a dash. In Siegfried outputs,
+			 * those are the matches (or the identifiers of the scan). */
+			boolean item = trimmed.startsWith("- ");
+			if (item) { trimmed = trimmed.substring(2).trim(); }
+
+			int colon = trimmed.indexOf(':');
+			if (colon < 0)
+			{
+				throw new SiegfriedFormatException(
+					"Expected 'key : value' in YAML output: " + line);
+			}
+			String key = trimmed.substring(0, colon).trim();
+			String value = trimmed.substring(colon + 1).trim();
+
+			boolean indented = Character.isWhitespace(line.charAt(0))
+				|| line.startsWith("-");
+			if (!indented)
+			{
+				document.property(key, value);
+			}
+			else
+			{
+				document.listProperty(item, key, value);
+			}
+		}
+		document.handOver(consumer);
+	}
+
+	/* Collects the properties of a single YAML document. */
+	private static class Document
+	{
+		private boolean isFile = false;
+		private String filename = "";
+		private int filesize = -1;
+
+		/* Whether we're in the matches-list (rather than another list). */
+		private boolean inMatches = false;
+
+		/* The ids of the matches, null if a match has no id. */
+		private final ArrayList<String> matchIds = new ArrayList<String>();
+
+		private void property(String key, String value)
+		{
+			inMatches = key.equals("matches");
+
+			if (key.equals("filename"))
+			{
+				isFile = true;
+				filename = unquote(value);
+			}
+			else if (key.equals("filesize"))
+			{
+				isFile = true;
+				filesize = CsvRecordReader.parseSize(unquote(value));
+			}
+			else if (inMatches)
+			{
+				isFile = true;
+			}
+		}
+
+		/* A property of an item of a list.
+		 * ITEM tells whether it is the first property of a new item. */
+		private void listProperty(boolean item, String key, String value)
+		{
+			if (!inMatches) { return; }
+
+			if (item) { matchIds.add(null); }
+			if (matchIds.isEmpty()) { return; }
+
+			if (key.equals("id"))
+			{
+				matchIds.set(matchIds.size() - 1, unquote(value));
+			}
+		}
+
+		/* Hands the file over, if this document describes a file. */
+		private void handOver(Consumer<SiegfriedFile> consumer)
+		{
+			if (!isFile) { return; }
+
+			SiegfriedFile file = new SiegfriedFile(filesize, filename);
+			for (String id : matchIds)
+			{
+				/* If there's no pronom, store NO_ID. */
+				file.addMatch(id == null || id.isEmpty()
+					? PronomMatch.of(PronomRegistry.NO_ID)
+					: PronomMatch.of(id));
+			}
+			consumer.accept(file);
+		}
+	}
+
+	/* Removes the quotes of a YAML scalar.
+	 * Single quoted scalars escape a quote by doubling it. */
+	private static String unquote(String value)
+	{
+		int length = value.length();
+		if (length >= 2 && value.charAt(0) == '\''
+			&& value.charAt(length - 1) == '\'')
+		{
+			return value.substring(1, length - 1).replace("''", "'");
+		}
+		if (length >= 2 && value.charAt(0) == '"'
+			&& value.charAt(length - 1) == '"')
+		{
+			return value.substring(1, length - 1)
+				.replace("\\\"", "\"").replace("\\\\", "\\");
+		}
+		return value;
+	}
+}
@@ -68,6 +68,14 @@ public class SystemChoice
 	 */
 	public SystemChoice(ArrayList<SystemImage> systems,
             HashMap<String, Double> pronoms)
+	{
+		this(systems, (pronoms != null ? new PronomValues(pronoms) : null));
+	}
+
+	/* Same as above with the relevances kept by pronom id
+	 * (see PronomRelevance.relevances). */
+	public SystemChoice(ArrayList<SystemImage> systems,
+            PronomValues pronoms)
 	{
 		/* No systems or pronoms cases. */
 		if (systems == null) { return; }
@@ -175,10 +183,10 @@ public class SystemChoice
      * RETURNS	the score
 	 */
 	private static double systemScore(SystemImage system,
-									  HashMap<String, Double> pronoms)
+									  PronomValues pronoms)
 	{
 		double systemScore = 0;
-		for (String pronom : pronoms.keySet())
+		for (int pronom : pronoms.ids())
 		{
 			if (system.readable(pronom))
 			{
@@ -26,6 +26,7 @@
 
 package systemRecommendation;
 
+import java.util.BitSet;
 import java.util.HashMap;
 //import java.util.ArrayList;
 import java.util.HashSet;
@@ -66,6 +67,10 @@ public class SystemImage {
 	private HashSet<String> readablePronoms;
 	private HashSet<String> writablePronoms;
 
+	/* The same pronoms by their ids in the PronomRegistry. */
+	private BitSet readableIds;
+	private BitSet writableIds;
+
     public double suitability = 0.0;
 	
 	/* Constructor for a system image representing a system environment.
@@ -79,6 +84,8 @@ public class SystemImage {
 		    = (readsPronoms != null ? readsPronoms : new HashSet<String>());
 		writablePronoms 
 		    = (writesPronoms != null ? writesPronoms : new HashSet<String>());
+		readableIds = ids(readablePronoms);
+		writableIds = ids(writablePronoms);
 	}
 
 	/* Constructor for a system image representing a system environment.
@@ -114,6 +121,19 @@ public class SystemImage {
 			 */		    
 			addPronomsFromArchive(current);
 		}
+		readableIds = ids(readablePronoms);
+		writableIds = ids(writablePronoms);
+	}
+
+	/* The ids of the given pronoms in the PronomRegistry. */
+	private static BitSet ids(HashSet<String> pronoms)
+	{
+		BitSet ids = new BitSet();
+		for (String pronom : pronoms)
+		{
+			if (pronom != null) { ids.set(PronomRegistry.id(pronom)); }
+		}
+		return ids;
 	}
 
 	/* This method looks up the readable/writable pronoms of a program
@@ -206,7 +226,9 @@ public class SystemImage {
 		}
 	}
 
-	/* Return the set of pronoms this system can read. */
+	/* Return the set of pronoms this system can read.
+	 * The sets mustn't be changed, since the ids of the pronoms
+	 * are taken when the system is created. */
 	public HashSet<String> readablePronoms()
 	{
 		return readablePronoms;
@@ -218,18 +240,41 @@ public class SystemImage {
 		return writablePronoms;
 	}
 
+	/* Return the ids of the pronoms this system can read. */
+	public BitSet readableIds()
+	{
+		return readableIds;
+	}
+
+	/* Return the ids of the pronoms this system can write. */
+	public BitSet writableIds()
+	{
+		return writableIds;
+	}
+
 	/* Checks whether the given pronom is readable by the system. */
 	public boolean readable(String pronom)
 	{
 		return readablePronoms.contains(pronom);
 	}
 
+	/* Same as above for the id of a pronom in the PronomRegistry. */
+	public boolean readable(int pronom)
+	{
+		return pronom >= 0 && readableIds.get(pronom);
+	}
+
 	/* Checks whether the given pronom is writable by the system. */
 	public boolean writable(String pronom)
 	{
 		return writablePronoms.contains(pronom);
 	}
 
+	public boolean writable(int pronom)
+	{
+		return pronom >= 0 && writableIds.get(pronom);
+	}
+
 	/* ID getter */
 	public int id()
 	{
@@ -27,8 +27,11 @@
 package systemRecommendation;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 /* This is the main class dealing with the recommendation of a system
  * for a given disk.
@@ -59,10 +62,18 @@ public class SystemRecommendation
 	 * 
 	 * ARGS[2]			Path to the file with the Siegfried output of the
 	 * 					given disk for which a system shall be recommended.
+	 * 					With '-', the output is read from standard input
+	 * 					while the statistics are being calculated, e.g.
+	 * 					sf -json disk | java ... systems outputs -
 	 * 
 	 * OPTIONAL:
 	 * ARGS[3]			Parameter for the influence of path depth of files on
 	 * 					the relevance formular. Default is 0.4.
+	 * 
+	 * ARGS[4]			Path to a manifest remembering the Siegfried outputs
+	 * 					of ARGS[1] already ingested, so later runs only
+	 * 					parse new or changed ones (see CorpusManifest).
+	 * 					It's created if it doesn't exist yet.
 	 *
 	 * RETURN			Prints the number of the recommended system to
 	 * 					standard output. The number corresponds to the line
@@ -87,23 +98,47 @@ public class SystemRecommendation
 
 		/* If values for those parameters are given,
 		 * obviously use the given ones instead. */
-		if (args.length == 4)
+		if (args.length >= 4)
 		{
 			depthParam = Double.parseDouble(args[3]);
 		}
 
-		SystemStatistics systemStats = createSystemStats(systemsFile);
-		PronomStatistics pronomStats = createPronomStats(siegfriedOutputs);
+		/* Without a manifest, all Siegfried outputs are parsed. */
+		Path manifest = (args.length >= 5 ? Paths.get(args[4]) : null);
 
-		/* Get the content on the disk. */
-		Disk disk
-		    = ExtractSiegfriedData.extractSiegfriedDataFromFile(
-		    	siegfriedOutputForDisk, "");
+		/* Start reading the disk from standard input right away,
+		 * so Siegfried isn't kept waiting. */
+		RelevanceAccumulator accumulator = null;
+		FutureTask<Void> reading = null;
+		if (siegfriedOutputForDisk.equals("-"))
+		{
+			accumulator = new RelevanceAccumulator(depthParam);
+			reading = readStandardInput(accumulator);
+		}
+
+		SystemStatistics systemStats = createSystemStats(systemsFile);
+		PronomStatistics pronomStats
+			= createPronomStats(siegfriedOutputs, manifest);
 
 		/* Calculate the relevance of each pronom occuring on the disk. */
-		HashMap<String, Double> relevances
-		    = PronomRelevance.pronomRelevances(
-		    	disk, pronomStats, systemStats, depthParam);
+		PronomValues relevances;
+		if (reading != null)
+		{
+			awaitReading(reading);
+			relevances = PronomRelevance.relevances(
+				accumulator, pronomStats, systemStats);
+		}
+		else
+		{
+			/* Get the content on the disk, column by column.
+			 * The relevances don't need the paths of the files. */
+			ColumnarDisk disk
+			    = ExtractSiegfriedData.extractColumnarDisk(
+			    	siegfriedOutputForDisk, "");
+
+			relevances = PronomRelevance.relevances(
+			    disk, pronomStats, systemStats, depthParam);
+		}
 
 		/* Recommend a system maximizing the relevance. */
 		SystemChoice sysChoice
@@ -116,6 +151,58 @@ public class SystemRecommendation
 		output(chosenSystems);
 	}
 
+	/* This function starts reading a Siegfried output from standard input
+	 * on a thread of its own, handing each file to the accumulator. */
+	private static FutureTask<Void> readStandardInput(
+		RelevanceAccumulator accumulator)
+	{
+		FutureTask<Void> reading = new FutureTask<Void>(() ->
+		{
+			ExtractSiegfriedData.streamSiegfriedOutput(
+				System.in, null, accumulator);
+			return null;
+		});
+
+		Thread thread = new Thread(reading, "StandardInput");
+		thread.setDaemon(true);
+		thread.start();
+		return reading;
+	}
+
+	/* This function waits until the Siegfried output on standard input
+	 * has been read completely. */
+	private static void awaitReading(FutureTask<Void> reading)
+		throws IOException
+	{
+		try
+		{
+			reading.get();
+		}
+		catch(ExecutionException e)
+		{
+			if (e.getCause() instanceof org.json.JSONException)
+			{
+				throw new IOException("The Siegfried output on standard "
+					+ "input is flawed.", e.getCause());
+			}
+			if (e.getCause() instanceof IOException)
+			{
+				throw (IOException) e.getCause();
+			}
+			if (e.getCause() instanceof Error)
+			{
+				throw (Error) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(
+				"Interrupted while reading standard input");
+		}
+	}
+
 	/* This function creates system statistics from a given file containing
 	 * system representations.
 	 */
@@ -137,23 +224,56 @@ public class SystemRecommendation
 
 	/* This function creates pronom statistics from a given directory of files
 	 * with Siegfried output.
+	 * The outputs are parsed by one thread per available processor.
 	 */
 	public static PronomStatistics createPronomStats(String path)
 		throws IOException
+	{
+		return createPronomStats(path, null);
+	}
+
+	/* Same as above, yet outputs ingested by a previous run are remembered
+	 * in the given MANIFEST, so only new or changed ones are parsed.
+	 * The manifest is saved afterwards, a failure to do so is thrown.
+	 * Without a manifest, i.e. null, all outputs are parsed.
+	 */
+	public static PronomStatistics createPronomStats(String path,
+		Path manifest) throws IOException
 	{
 		PronomStatistics pronomStats;
 		try
 		{
-		    pronomStats = new PronomStatistics(path);
+		    int workers = Runtime.getRuntime().availableProcessors();
+		    pronomStats = (manifest == null
+		    	? new PronomStatistics(path, workers)
+		    	: new PronomStatistics(path, workers, manifest));
 		}
 		catch(IOException e)
 		{
 			throw new IOException("Directory of the Siegfried outputs is "
-				+ "flawed or contains unreadable files.");
+				+ "flawed or contains unreadable files"
+				+ (manifest == null ? "." : ", or the manifest couldn't "
+				+ "be saved."), e);
 		}
 		return pronomStats;
 	}
 
+	/* This function recommends systems for a single folder of a disk and
+	 * its subfolders instead of the entire disk, e.g. for
+	 * disk.disk().getPath("DATA/PROJECTS").
+	 * The relevances are calculated from the profile of the folder
+	 * (see Folder.profile). Thus they may differ from the ones of a disk
+	 * of the folder's files (see DiskProfile).
+	 */
+	public static SystemChoice chooseSystems(Folder folder,
+		PronomStatistics pronomStats, SystemStatistics systemStats,
+		double depthParam)
+	{
+		PronomValues relevances = PronomRelevance.relevances(
+			folder, pronomStats, systemStats, depthParam);
+		return new SystemChoice(systemStats.systems, relevances);
+	}
+
 	/* Just print the chosen systems, divided by commas.
 	 * If there are no chosen systems, print '-1'. */
     private static void output(int[] chosenSystems)
@@ -31,6 +31,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -58,18 +59,31 @@ public class SystemStatistics
 	public HashMap<String, Integer> readingSystems;
 	public HashMap<String, Integer> writingSystems;
 
+	/* The same numbers by the ids of the pronoms in the PronomRegistry. */
+	private PronomCounts readingCounts;
+	private PronomCounts writingCounts;
+
 	/* Returns the number of systems able to read a given pronom.*/
 	public Integer numberOfReadingSystems(String pronom)
 	{
-		return (readingSystems.get(pronom) == null ?
-				0 : readingSystems.get(pronom));
+		return readingCounts.get(pronom);
 	}
 
 	/* Returns the number of systems able to write a given pronom.*/
 	public Integer numberOfWritingSystems(String pronom)
 	{
-		return (writingSystems.get(pronom) == null ?
-				0 : writingSystems.get(pronom));
+		return writingCounts.get(pronom);
+	}
+
+	/* Same as above for the id of a pronom in the PronomRegistry. */
+	public int numberOfReadingSystems(int pronom)
+	{
+		return readingCounts.get(pronom);
+	}
+
+	public int numberOfWritingSystems(int pronom)
+	{
+		return writingCounts.get(pronom);
 	}
 
 	/* Constructor if the systems are given as string.
@@ -82,8 +96,7 @@ public class SystemStatistics
 	public SystemStatistics(String source)
 	{	
 		systems = importSystemsFromString(source);
-		readingSystems = calculatePronomCommonness(true);
-		writingSystems = calculatePronomCommonness(false);
+		calculatePronomCommonness();
 	}
 
 	/* Constructor if the systems are given by the path to a file.
@@ -97,8 +110,7 @@ public class SystemStatistics
 	public SystemStatistics(Path source) throws IOException
 	{
 		systems = importSystemsFromFile(source);
-		readingSystems = calculatePronomCommonness(true);
-		writingSystems = calculatePronomCommonness(false);
+		calculatePronomCommonness();
 	}
 
 	/* This function reads an archive of system environments from a string.
@@ -198,46 +210,34 @@ public class SystemStatistics
 
 	/* Counts how many systems are able to read/write a file format
 	 * of a given pronom.
-	 * 
-	 * READ		true for reading systems, false for writing systems
-	 * 
-	 * RETURNS	a HashMap containing the number of reading/writing systems
-	 * 			for each occuring pronom
-	 * 
+	 * The counts are kept by pronom id, and as maps for each
+	 * occuring pronom in readingSystems/writingSystems.
 	 */
-	private HashMap<String, Integer> calculatePronomCommonness(boolean read)
+	private void calculatePronomCommonness()
 	{
-		HashMap<String, Integer> map = new HashMap<String, Integer>();
-		
-		if (read) /* readable pronoms */
+		readingCounts = new PronomCounts();
+		writingCounts = new PronomCounts();
+
+		/* For each system... */
+		for (SystemImage system : systems)
 		{
-			/* For each system... */
-			//for (int system = 0; system < systems.size(); system++)
-			for (SystemImage system : systems)
+			/* ... consider each pronom and increment it's counter. */
+			BitSet readable = system.readableIds();
+			for (int pronom = readable.nextSetBit(0); pronom >= 0;
+				pronom = readable.nextSetBit(pronom + 1))
 			{
-				/* ... consider each pronom... */
-				for (String pronom : system.readablePronoms())
-				{
-					Integer value = map.get(pronom);
-					/* ... and increment it's counter. */
-					map.put(pronom, ((value != null) ? value + 1 : 1));
-				}
+				readingCounts.add(pronom, 1);
 			}
-		}
-		else /* writabel pronoms */
-		{
-			/* For each system... */
-			for (SystemImage system : systems)
+
+			BitSet writable = system.writableIds();
+			for (int pronom = writable.nextSetBit(0); pronom >= 0;
+				pronom = writable.nextSetBit(pronom + 1))
 			{
-				/* ... consider each pronom... */
-				for (String pronom : system.writablePronoms())
-				{
-					Integer value = map.get(pronom);
-					/* ... and increment it's counter. */
-					map.put(pronom, ((value != null) ? value + 1 : 1));
-				}			
+				writingCounts.add(pronom, 1);
 			}
-		}		
-		return map;
+		}
+
+		readingSystems = readingCounts.toMap();
+		writingSystems = writingCounts.toMap();
 	}
 }
\ No newline at end of file
@@ -41,13 +41,30 @@ private static String directory
     = "D:\\\\Bibliotheken\\\\Studium\\\\Bachelorarbeit\\\\testData\\\\";
 
 	@Test
-	public void runAllTests() throws IOException
+	public void runAllTests() throws IOException, InterruptedException
 	{
 		/* Machine independent tests. */
 		SystemImageTest.test();
 		SystemChoiceTest.test();
 		SystemStatisticsTest.test1();
 		ExtractSiegfriedDataTest.testExtractSiegfriedData();
+		ExtractSiegfriedDataTest.testExtractSiegfriedDataFromStream();
+		ExtractSiegfriedDataTest.testExtractSiegfriedDataFormats();
+		ExtractSiegfriedDataTest.testExtractDroidAndFido();
+		ExtractSiegfriedDataTest.testExtractPronomsParallel();
+		MappedSiegfriedReaderTest.test();
+		SiegfriedArchiveTest.test();
+		SiegfriedCorpusTest.test();
+		CorpusManifestTest.test();
+		ReadAheadTest.test();
+		DeduplicationTest.test();
+		RelevanceAccumulatorTest.test();
+		PronomSampleTest.test();
+		PronomRegistryTest.test();
+		ColumnarDiskTest.test();
+		DiskArenaTest.test();
+		RelevanceResultTest.test();
+		DiskProfileTest.test();
 		SiegfriedFileTest.test();
 		FolderTest.test();
 
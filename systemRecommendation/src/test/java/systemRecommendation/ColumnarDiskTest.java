@@ -0,0 +1,130 @@
+/* ColumnarDiskTest.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+
+package systemRecommendation;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class ColumnarDiskTest {
+
+	public static void test() throws IOException
+	{
+		/* Files of all depths and sizes, with several, single, unknown
+		 * and no matches. */
+		String json = "{\"files\":["
+			+ "{\"filename\":\"a.pdf\",\"filesize\":10000,\"matches\":"
+			+ "[{\"id\":\"fmt/18\"},{\"id\":\"fmt/19\"}]},"
+			+ "{\"filename\":\"dir/b.pdf\",\"filesize\":777,\"matches\":"
+			+ "[{\"id\":\"fmt/18\"}]},"
+			+ "{\"filename\":\"dir/sub/c.txt\",\"filesize\":123456,\"matches\":"
+			+ "[{\"id\":\"x-fmt/111\"},{\"id\":\"UNKNOWN\"}]},"
+			+ "{\"filename\":\"/d/e/f/g.bin\",\"filesize\":99,\"matches\":[{}]},"
+			+ "{\"filename\":\"h\",\"matches\":[{\"id\":\"fmt/20\"}]},"
+			+ "{\"filename\":\"i\",\"filesize\":5,\"matches\":[]}]}";
+
+		Path directory = Files.createTempDirectory("siegfriedColumnar");
+		Path output = directory.resolve("1.ISO");
+		Files.write(output, json.getBytes(StandardCharsets.UTF_8));
+
+		Disk disk = ExtractSiegfriedData.extractSiegfriedDataFromFile(
+			output.toString(), "d");
+		ColumnarDisk columns = ExtractSiegfriedData.extractColumnarDisk(
+			output.toString(), "d");
+		ColumnarDisk mapped = MappedSiegfriedReader.extractColumnarDisk(
+			output.toString(), "d");
+
+		/* Both readers fill the same columns as the files hold. */
+		for (ColumnarDisk columnar : new ColumnarDisk[] { columns, mapped })
+		{
+			assertEquals("d", columnar.name);
+			assertEquals(disk.files.length, columnar.fileCount());
+			assertEquals(7, columnar.numberOfMatches());
+			for (int i = 0; i < disk.files.length; i++)
+			{
+				SiegfriedFile file = disk.files[i];
+				assertEquals((long) file.fileSize(), columnar.fileSize(i));
+				assertEquals(file.depth(), columnar.depth(i));
+				assertEquals(file.matchCount(), columnar.matchCount(i));
+				for (int match = 0; match < file.matchCount(); match++)
+				{
+					assertEquals(file.getMatch(match).id(),
+						columnar.pronom(i, match));
+				}
+			}
+		}
+		assertEquals(PronomRegistry.NO_ID, columns.pronom(3, 0));
+
+		/* The statistics count the same pronoms. */
+		PronomStatistics statistics
+			= new PronomStatistics(directory.toString());
+		PronomStatistics columnarStatistics
+			= new PronomStatistics(Arrays.asList(columns));
+		assertEquals(statistics.getNumberOfMatches(),
+			columnarStatistics.getNumberOfMatches());
+		assertEquals(statistics.getRelativeFrequencyMapSize(),
+			columnarStatistics.getRelativeFrequencyMapSize());
+		assertEquals(statistics.getRelativeFrequency("fmt/18"),
+			columnarStatistics.getRelativeFrequency("fmt/18"), 0);
+
+		/* The relevances are exactly the same. */
+		SystemStatistics systemStats = new SystemStatistics("");
+		for (double depthPenalty : new double[] { 0.01, 0.4, 1 })
+		{
+			HashMap<String, Double> expected = PronomRelevance
+				.pronomRelevances(disk, statistics, systemStats, depthPenalty);
+			assertEquals(expected, PronomRelevance.pronomRelevances(
+				mapped, statistics, systemStats, depthPenalty));
+		}
+
+		/* Files can be added one by one, too. */
+		ColumnarDisk.Builder builder = new ColumnarDisk.Builder();
+		for (int i = 0; i < 3000; i++)
+		{
+			builder.addFile(i, i % 5);
+			for (int match = 0; match < i % 3; match++)
+			{
+				builder.addMatch(PronomRegistry.id("fmt/" + match));
+			}
+		}
+		ColumnarDisk built = builder.build("");
+		assertEquals(3000, built.fileCount());
+		assertEquals(2, built.matchCount(2999));
+		assertEquals(0, built.matchCount(2998 - 2998 % 3));
+		assertEquals(4, built.depth(2999));
+		assertEquals(PronomRegistry.id("fmt/1"), built.pronom(2999, 1));
+
+		Files.delete(output);
+		Files.delete(directory);
+	}
+}
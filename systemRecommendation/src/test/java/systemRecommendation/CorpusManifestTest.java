@@ -0,0 +1,143 @@
+/* CorpusManifestTest.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+public class CorpusManifestTest {
+
+	public static void test() throws IOException
+	{
+		Path parent = Files.createTempDirectory("siegfriedManifest");
+		Path root = Files.createDirectory(parent.resolve("corpus"));
+		Path manifest = parent.resolve("corpus.manifest");
+
+		/* Pronoms with separators survive the manifest. */
+		Files.write(root.resolve("1.ISO"), output("fmt/1", "odd\t;=\\id"));
+		Files.write(root.resolve("2.ISO"), output("fmt/1", "fmt/2"));
+		Files.write(root.resolve("3.ISO"), output("fmt/3"));
+
+		PronomStatistics statistics
+			= new PronomStatistics(root.toString(), 1, manifest);
+		assertEqualStatistics(root, statistics);
+		assertTrue(Files.exists(manifest));
+
+		/* Nothing changed, so nothing needs to be parsed. */
+		CorpusManifest loaded = CorpusManifest.load(manifest);
+		assertEquals(3, loaded.size());
+		PronomCounts totals = loaded.totals();
+		assertEquals(0, loaded.update(root, 1, totals));
+		assertEquals(2, totals.get("fmt/1"));
+		assertEquals(1, totals.get("odd\t;=\\id"));
+
+		/* Add, change, touch and delete outputs. */
+		Files.write(root.resolve("4.ISO"), output("fmt/4"));
+		Files.write(root.resolve("2.ISO"), output("fmt/2", "fmt/2", "fmt/5"));
+		Files.setLastModifiedTime(root.resolve("3.ISO"),
+			FileTime.fromMillis(1000));
+		Files.delete(root.resolve("1.ISO"));
+
+		statistics.refresh();
+		assertEqualStatistics(root, statistics);
+
+		/* A new run only parses the added and changed outputs. */
+		loaded = CorpusManifest.load(manifest);
+		totals = loaded.totals();
+		assertEquals(0, loaded.update(root, 2, totals));
+		assertEquals(3, loaded.size());
+		assertEquals(0, totals.get("fmt/1"));
+		assertEquals(2, totals.get("fmt/2"));
+
+		Files.write(root.resolve("3.ISO"), output("fmt/6"));
+		assertEquals(1, loaded.update(root, 2, totals));
+		assertEquals(0, totals.get("fmt/3"));
+
+		/* A flawed manifest means starting over. */
+		Files.write(manifest, "# Siegfried corpus manifest 1\nx\t1\n"
+			.getBytes(StandardCharsets.UTF_8));
+		assertEquals(0, CorpusManifest.load(manifest).size());
+		assertEqualStatistics(root,
+			new PronomStatistics(root.toString(), 2, manifest));
+
+		/* A manifest that can't be saved is reported. */
+		try
+		{
+			SystemRecommendation.createPronomStats(root.toString(),
+				parent.resolve("missing").resolve("corpus.manifest"));
+			fail();
+		}
+		catch(IOException e)
+		{
+			assertTrue(e.getCause() instanceof NoSuchFileException);
+		}
+
+		for (String name : new String[] { "2.ISO", "3.ISO", "4.ISO" })
+		{
+			Files.delete(root.resolve(name));
+		}
+		Files.delete(root);
+		Files.delete(manifest);
+		Files.delete(parent);
+	}
+
+	/* Statistics from a manifest equal those from parsing everything. */
+	private static void assertEqualStatistics(Path root,
+		PronomStatistics statistics) throws IOException
+	{
+		PronomStatistics expected = new PronomStatistics(root.toString());
+		assertEquals(expected.getNumberOfMatches(),
+			statistics.getNumberOfMatches());
+		assertEquals(expected.getRelativeFrequencyMapSize(),
+			statistics.getRelativeFrequencyMapSize());
+		for (int i = 1; i <= 6; i++)
+		{
+			assertEquals(expected.getRelativeFrequency("fmt/" + i),
+				statistics.getRelativeFrequency("fmt/" + i), 0.0001);
+		}
+	}
+
+	/* A Siegfried output of a single file matching PRONOMS. */
+	private static byte[] output(String... pronoms)
+	{
+		StringBuilder matches = new StringBuilder();
+		for (String pronom : pronoms)
+		{
+			if (matches.length() > 0) { matches.append(','); }
+			matches.append("{\"id\":\""
+				+ pronom.replace("\\", "\\\\").replace("\t", "\\t") + "\"}");
+		}
+		return ("{\"files\":[{\"filename\":\"f\",\"filesize\":4,\"matches\":["
+			+ matches + "]}]}").getBytes(StandardCharsets.UTF_8);
+	}
+}
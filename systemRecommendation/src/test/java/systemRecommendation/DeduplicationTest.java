@@ -0,0 +1,168 @@
+/* DeduplicationTest.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DeduplicationTest {
+
+	public static void test() throws IOException
+	{
+		String scan = "{\"siegfried\":\"1.7.8\",\"scandate\":\"2019-01-01\","
+			+ "\"files\":[{\"filename\":\"a.pdf\",\"filesize\":10,\"matches\":"
+			+ "[{\"id\":\"fmt/18\"},{\"id\":\"fmt/19\"}]},{\"filename\":\"b.txt\","
+			+ "\"filesize\":20,\"matches\":[{\"id\":\"x-fmt/111\"}]}]}";
+
+		/* The same files in a different order, scanned another day. */
+		String rescan = "{\"siegfried\":\"1.7.8\",\"scandate\":\"2019-02-02\","
+			+ "\"files\":[{\"filename\":\"b.txt\",\"filesize\":20,\"matches\":"
+			+ "[{\"id\":\"x-fmt/111\"}]},{\"filename\":\"a.pdf\",\"filesize\":10,"
+			+ "\"matches\":[{\"id\":\"fmt/19\"},{\"id\":\"fmt/18\"}]}]}";
+
+		/* Same size as the scan, yet a different file. */
+		String other = scan.replace("b.txt", "c.txt");
+
+		Disk disk = ExtractSiegfriedData.extractSiegfriedDataFromString(
+			scan, "1");
+		assertEquals(Deduplication.fingerprint(disk), Deduplication.fingerprint(
+			ExtractSiegfriedData.extractSiegfriedDataFromString(rescan, "2")));
+		assertTrue(Deduplication.fingerprint(disk)
+			!= Deduplication.fingerprint(ExtractSiegfriedData
+				.extractSiegfriedDataFromString(other, "1")));
+
+		Path parent = Files.createTempDirectory("siegfriedDuplicates");
+		Path root = Files.createDirectory(parent.resolve("corpus"));
+		Files.write(root.resolve("1.ISO"), bytes(scan));
+		Files.write(root.resolve("1 - copy.ISO"), bytes(scan));
+		Files.write(root.resolve("2.ISO"), bytes(rescan));
+		Files.write(root.resolve("3.ISO"), bytes(other));
+
+		/* Unless asked to, duplicates are counted like any output. */
+		for (int workers = 1; workers <= 3; workers += 2)
+		{
+			PronomStatistics statistics
+				= new PronomStatistics(root.toString(), workers);
+			assertEquals(0, statistics.getSkippedDuplicates());
+			assertEquals(12, statistics.getNumberOfMatches());
+			assertEquals(4.0 / 12, statistics.getRelativeFrequency("fmt/18"),
+				0.0001);
+		}
+
+		/* Only the copy and the re-scan are skipped. */
+		for (int workers = 1; workers <= 3; workers += 2)
+		{
+			PronomStatistics statistics = new PronomStatistics(
+				root.toString(), workers, new Deduplication());
+			assertEquals(2, statistics.getSkippedDuplicates());
+			assertEquals(6, statistics.getNumberOfMatches());
+			assertEquals(2.0 / 6, statistics.getRelativeFrequency("fmt/18"),
+				0.0001);
+		}
+
+		Deduplication deduplication = new Deduplication();
+		PronomStatistics statistics = new PronomStatistics(root.toString(),
+			new ReadAhead(2, 1 << 20), new Deduplication());
+		assertEquals(2, statistics.getSkippedDuplicates());
+		assertEquals(0, new PronomStatistics(root.toString(),
+			new ReadAhead(2, 1 << 20)).getSkippedDuplicates());
+		assertTrue(!deduplication.isCopy(root.resolve("1.ISO")));
+		assertTrue(!deduplication.isCopy(root.resolve("3.ISO")));
+		assertTrue(deduplication.isCopy(root.resolve("1 - copy.ISO")));
+		assertEquals(1, deduplication.copies());
+
+		/* Outputs of the same size asked about by several threads at
+		 * once, each content twice. */
+		Path sameSize = Files.createDirectory(parent.resolve("sameSize"));
+		List<Path> outputs = new ArrayList<Path>();
+		for (int i = 0; i < 40; i++)
+		{
+			Path output = sameSize.resolve(i + ".ISO");
+			Files.write(output, bytes(scan.replace("a.pdf",
+				"a" + (char) ('a' + i % 20) + ".pdf")));
+			outputs.add(output);
+		}
+		Deduplication parallel = new Deduplication();
+		long distinct = outputs.parallelStream().filter(output ->
+		{
+			try
+			{
+				return !parallel.isCopy(output);
+			}
+			catch(IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		}).count();
+		assertEquals(20, distinct);
+		assertEquals(20, parallel.copies());
+		for (Path output : outputs) { Files.delete(output); }
+		Files.delete(sameSize);
+
+		/* The manifest counts duplicates only once as well,
+		 * even as they come and go. */
+		Path manifest = root.resolveSibling(root.getFileName() + ".manifest");
+		statistics = new PronomStatistics(root.toString(), 2, manifest);
+		assertEquals(2, statistics.getSkippedDuplicates());
+		assertEquals(6, statistics.getNumberOfMatches());
+
+		Files.delete(root.resolve("1.ISO"));
+		statistics.refresh();
+		assertEquals(1, statistics.getSkippedDuplicates());
+		assertEquals(6, statistics.getNumberOfMatches());
+
+		Files.delete(root.resolve("1 - copy.ISO"));
+		Files.delete(root.resolve("2.ISO"));
+		statistics.refresh();
+		assertEquals(0, statistics.getSkippedDuplicates());
+		assertEquals(3, statistics.getNumberOfMatches());
+
+		/* A copy of a known output isn't even parsed. */
+		Files.write(root.resolve("4.ISO"), bytes(other));
+		CorpusManifest loaded = CorpusManifest.load(manifest);
+		assertEquals(0, loaded.update(root, 1, loaded.totals()));
+		assertEquals(1, loaded.duplicates());
+
+		Files.delete(root.resolve("3.ISO"));
+		Files.delete(root.resolve("4.ISO"));
+		Files.delete(root);
+		Files.delete(manifest);
+		Files.delete(parent);
+	}
+
+	private static byte[] bytes(String text)
+	{
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+}
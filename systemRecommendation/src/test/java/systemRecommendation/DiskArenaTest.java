@@ -0,0 +1,162 @@
+/* DiskArenaTest.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class DiskArenaTest {
+
+	public static void test()
+	{
+		ColumnarDisk[] columns = new ColumnarDisk[3];
+		for (int disk = 0; disk < columns.length; disk++)
+		{
+			ColumnarDisk.Builder builder = new ColumnarDisk.Builder();
+			for (int i = 0; i < 1000 * (disk + 1); i++)
+			{
+				builder.addFile(i == 7 ? -1 : 100L * i + disk, (i + disk) % 6);
+				for (int match = 0; match < i % 3; match++)
+				{
+					builder.addMatch(match == 1 ? PronomRegistry.NO_ID
+						: PronomRegistry.id("fmt/" + (i % 5)));
+				}
+			}
+			columns[disk] = builder.build("" + disk);
+		}
+
+		/* A slab holds the first disk only, the last one gets a slab
+		 * of its own. */
+		DiskArena arena = new DiskArena(40000);
+		ArrayList<OffHeapDisk> disks = new ArrayList<OffHeapDisk>();
+		for (ColumnarDisk disk : columns)
+		{
+			disks.add(arena.store(disk));
+		}
+		assertEquals(3, arena.diskCount());
+		assertEquals(40000 + 40000 + OffHeapDisk.bytes(columns[2]),
+			arena.allocatedBytes());
+
+		/* The disks read the same as on the heap. */
+		for (int disk = 0; disk < columns.length; disk++)
+		{
+			ColumnarDisk expected = columns[disk];
+			OffHeapDisk stored = disks.get(disk);
+			assertEquals(expected.name(), stored.name());
+			assertEquals(expected.fileCount(), stored.fileCount());
+			assertEquals(expected.numberOfMatches(), stored.numberOfMatches());
+			for (int i = 0; i < expected.fileCount(); i++)
+			{
+				assertEquals(expected.fileSize(i), stored.fileSize(i));
+				assertEquals(expected.depth(i), stored.depth(i));
+				assertEquals(expected.matchCount(i), stored.matchCount(i));
+				for (int match = 0; match < expected.matchCount(i); match++)
+				{
+					assertEquals(expected.pronom(i, match),
+						stored.pronom(i, match));
+				}
+			}
+		}
+
+		/* So do the statistics and relevances. */
+		PronomStatistics statistics
+			= new PronomStatistics(Arrays.asList(columns));
+		PronomStatistics offHeapStatistics = new PronomStatistics(disks);
+		assertEquals(statistics.getNumberOfMatches(),
+			offHeapStatistics.getNumberOfMatches());
+		assertEquals(statistics.getRelativeFrequency("fmt/3"),
+			offHeapStatistics.getRelativeFrequency("fmt/3"), 0);
+		SystemStatistics systemStats = new SystemStatistics("");
+		for (double depthPenalty : new double[] { 0.01, 0.5, 1 })
+		{
+			assertEquals(PronomRelevance.pronomRelevances(columns[1],
+				statistics, systemStats, depthPenalty),
+				PronomRelevance.pronomRelevances(disks.get(1),
+				statistics, systemStats, depthPenalty));
+		}
+
+		/* Indices beyond the disk don't read its neighbours. */
+		boolean exception = false;
+		try
+		{
+			disks.get(0).fileSize(1000);
+		}
+		catch (IndexOutOfBoundsException e)
+		{
+			exception = true;
+		}
+		assertTrue(exception);
+
+		/* A released disk can't be read anymore. Its slab is dropped
+		 * unless it's the current one. */
+		arena.release(disks.get(0));
+		arena.release(disks.get(0));
+		assertTrue(disks.get(0).isReleased());
+		assertEquals(2, arena.diskCount());
+		assertEquals(40000 + OffHeapDisk.bytes(columns[2]),
+			arena.allocatedBytes());
+		exception = false;
+		try
+		{
+			disks.get(0).matchCount(0);
+		}
+		catch (IllegalStateException e)
+		{
+			exception = true;
+		}
+		assertTrue(exception);
+
+		/* The emptied current slab is filled again from the start. */
+		arena.release(disks.subList(1, 3));
+		assertEquals(0, arena.diskCount());
+		assertEquals(40000, arena.allocatedBytes());
+		OffHeapDisk again = arena.store(columns[0]);
+		assertEquals(40000, arena.allocatedBytes());
+		assertEquals(columns[0].pronom(2, 0), again.pronom(2, 0));
+
+		/* A disk of another arena isn't released. */
+		exception = false;
+		try
+		{
+			new DiskArena().release(again);
+		}
+		catch (IllegalArgumentException e)
+		{
+			exception = true;
+		}
+		assertTrue(exception);
+
+		arena.store(columns[1]);
+		arena.releaseAll();
+		assertTrue(again.isReleased());
+		assertEquals(0, arena.diskCount());
+		assertEquals(0, arena.allocatedBytes());
+		arena.close();
+	}
+}
@@ -0,0 +1,138 @@
+/* DiskProfileTest.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class DiskProfileTest {
+
+	public static void test() throws IOException
+	{
+		/* Roots and penalties of powers of two, where cutting the
+		 * penalized sizes to integers doesn't change them and the profile
+		 * agrees with the disk. */
+		String json = "{\"files\":["
+			+ "{\"filename\":\"a.pdf\",\"filesize\":1048576,\"matches\":"
+			+ "[{\"id\":\"fmt/18\"},{\"id\":\"fmt/19\"}]},"
+			+ "{\"filename\":\"dir/b.pdf\",\"filesize\":65536,\"matches\":"
+			+ "[{\"id\":\"fmt/18\"},{\"id\":\"fmt/18\"}]},"
+			+ "{\"filename\":\"dir/sub/c.txt\",\"filesize\":16777216,"
+			+ "\"matches\":[{\"id\":\"x-fmt/111\"},{\"id\":\"UNKNOWN\"}]},"
+			+ "{\"filename\":\"/d/e/f/g.bin\",\"filesize\":4194304,"
+			+ "\"matches\":[{}]},"
+			+ "{\"filename\":\"h\",\"filesize\":4096,\"matches\":[]}]}";
+
+		Path output = Files.createTempFile("siegfriedProfile", ".json");
+		Files.write(output, json.getBytes(StandardCharsets.UTF_8));
+
+		Disk disk = ExtractSiegfriedData.extractSiegfriedDataFromFile(
+			output.toString(), "d");
+		DiskProfile[] profiles = {
+			DiskProfile.of(disk),
+			DiskProfile.of(ExtractSiegfriedData.extractColumnarDisk(
+				output.toString(), "d")),
+			ExtractSiegfriedData.extractDiskProfile(output.toString(), "d"),
+			MappedSiegfriedReader.extractDiskProfile(output.toString(), "d")};
+
+		PronomStatistics pronomStats
+			= new PronomStatistics(new PronomSample(10, 1));
+		SystemStatistics systemStats = new SystemStatistics("");
+		for (DiskProfile profile : profiles)
+		{
+			assertEquals("d", profile.name);
+			assertEquals(5, profile.fileCount());
+			assertEquals(5, profile.maxDepth());
+			assertEquals(2, profile.fileCount(PronomRegistry.id("fmt/18")));
+			assertEquals(2, profile.fileCount(PronomRegistry.UNKNOWN));
+			assertEquals(2, profile.fileCount(PronomRegistry.NO_ID));
+			assertEquals(0, profile.fileCount(PronomRegistry.id("fmt/20")));
+			assertEquals(4, profile.ids().length);
+
+			/* Here, any depth penalty gives the relevances of the disk. */
+			for (double depthPenalty : new double[] { 1, 0.5, 0.25 })
+			{
+				PronomValues expected = PronomRelevance.relevances(
+					disk, pronomStats, systemStats, depthPenalty);
+				PronomValues relevances = PronomRelevance.relevances(
+					profile, pronomStats, systemStats, depthPenalty);
+				assertEquals(expected.size(), relevances.size());
+				for (int pronom : expected.ids())
+				{
+					assertEquals(expected.get(pronom), relevances.get(pronom),
+						1e-12);
+				}
+			}
+		}
+		assertTrue(Arrays.equals(profiles[0].ids(), profiles[3].ids()));
+
+		/* An empty profile has no relevances. */
+		DiskProfile empty = new DiskProfile("");
+		assertEquals(-1, empty.maxDepth());
+		assertEquals(0, empty.matchRelevances(0.5).size());
+
+		Files.delete(output);
+
+		/* Lots of small files deep down against a single large one.
+		 * Cutting their penalized sizes to integers, the disk leaves the
+		 * small files little weight, while the profile keeps it. */
+		StringBuilder deep = new StringBuilder("{\"files\":["
+			+ "{\"filename\":\"big\",\"filesize\":4840000,\"matches\":"
+			+ "[{\"id\":\"fmt/18\"}]}");
+		for (int i = 0; i < 1000; i++)
+		{
+			deep.append(",{\"filename\":\"a/b/" + i + "\",\"filesize\":121,"
+				+ "\"matches\":[{\"id\":\"x-fmt/111\"}]}");
+		}
+		deep.append("]}");
+		Files.write(output, deep.toString().getBytes(StandardCharsets.UTF_8));
+
+		disk = ExtractSiegfriedData.extractSiegfriedDataFromFile(
+			output.toString(), "deep");
+		int pdf = PronomRegistry.id("fmt/18");
+		int text = PronomRegistry.id("x-fmt/111");
+
+		PronomValues ofDisk = PronomRelevance.fileRelevances(disk, 0.5)
+			.matchRelevances();
+		PronomValues ofProfile = DiskProfile.of(disk).matchRelevances(0.5);
+		assertTrue(ofDisk.get(pdf) > ofDisk.get(text));
+		assertTrue(ofProfile.get(text) > ofProfile.get(pdf));
+
+		/* Without a penalty, nothing is cut and both agree. */
+		ofDisk = PronomRelevance.fileRelevances(disk, 1).matchRelevances();
+		ofProfile = DiskProfile.of(disk).matchRelevances(1);
+		assertEquals(ofDisk.get(pdf), ofProfile.get(pdf), 1e-12);
+		assertEquals(ofDisk.get(text), ofProfile.get(text), 1e-12);
+
+		Files.delete(output);
+	}
+}
@@ -28,7 +28,12 @@ package systemRecommendation;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 
 public class ExtractSiegfriedDataTest {
@@ -85,6 +90,232 @@ public class ExtractSiegfriedDataTest {
 	
 	}
 
+	public static void testExtractSiegfriedDataFromStream() throws IOException
+	{
+		/* An invalid JSON stream shall throw a JSONException,
+		 * nothing else. */
+		boolean exception = false;
+		try 
+		{
+		    ExtractSiegfriedData.extractSiegfriedDataFromStream(
+		    	stream("{\"files\":[{\"filesize\":1}"), "");
+		}
+		catch(org.json.JSONException e)
+		{
+			exception = true;
+		}
+		assertTrue(exception);
+
+		/* Extract from empty JSON object and from a non-list 'files'. */
+		assertTrue(ExtractSiegfriedData.extractSiegfriedDataFromStream(
+			stream("{}"), "").files.length == 0);
+		assertTrue(ExtractSiegfriedData.extractSiegfriedDataFromStream(
+			stream("{\"files\":{}}"), "").files.length == 0);
+
+		/* The stream shall yield the same disk as the string. */
+		String json = "{\"siegfried\":\"1.7.8\",\"identifiers\":[{\"name\":"
+			+ "\"pronom\"}],\"files\":[{\"filename\":\"a/b/c.pdf\","
+			+ "\"filesize\":1024,\"matches\":[{\"ns\":\"pronom\",\"id\":"
+			+ "\"fmt/18\"}, {\"id\":\"fmt/19\"}]}, {\"matches\":[{}]},"
+			+ "{\"filename\":\"d.txt\"}]}";
+		Disk expected
+			= ExtractSiegfriedData.extractSiegfriedDataFromString(json, "d");
+		Disk pronoms
+			= ExtractSiegfriedData.extractSiegfriedDataFromStream(
+				stream(json), "d");
+
+		assertEquals(expected.name, pronoms.name);
+		assertEqualDisks(expected, pronoms);
+		assertEquals("UNKNOWN", pronoms.files[1].getMatch(0).pronom());
+	}
+
+	public static void testExtractSiegfriedDataFormats() throws IOException
+	{
+		/* The same output in all the formats of Siegfried. */
+		String json = "{\"files\":[{\"filename\":\"dir/a, b.pdf\","
+			+ "\"filesize\":1024,\"matches\":[{\"ns\":\"pronom\",\"id\":"
+			+ "\"fmt/18\"},{\"ns\":\"pronom\",\"id\":\"fmt/19\"}]},"
+			+ "{\"filename\":\"it's.txt\",\"filesize\":7,\"matches\":"
+			+ "[{\"ns\":\"pronom\",\"id\":\"UNKNOWN\"}]},"
+			+ "{\"filename\":\"empty\",\"filesize\":0,\"matches\":[]}]}";
+
+		String yaml = "---\nsiegfried   : 1.7.8\nidentifiers : \n"
+			+ "  - name    : 'pronom'\n    details : 'default'\n"
+			+ "---\nfilename : 'dir/a, b.pdf'\nfilesize : 1024\n"
+			+ "modified : 2019-01-01T00:00:00+01:00\nerrors   : \n"
+			+ "matches  :\n  - ns      : 'pronom'\n    id      : 'fmt/18'\n"
+			+ "    basis   : 'byte match at 0, 8'\n"
+			+ "  - ns      : 'pronom'\n    id      : 'fmt/19'\n"
+			+ "---\nfilename : 'it''s.txt'\nfilesize : 7\nmatches  :\n"
+			+ "  - ns      : 'pronom'\n    id      : 'UNKNOWN'\n"
+			+ "---\nfilename : 'empty'\nfilesize : 0\nmatches  :\n";
+
+		String csv = "filename,filesize,modified,errors,namespace,id,format\n"
+			+ "\"dir/a, b.pdf\",1024,2019,,pronom,fmt/18,\"PDF \"\"1.4\"\"\"\n"
+			+ "\"dir/a, b.pdf\",1024,2019,,pronom,fmt/19,\n"
+			+ "it's.txt,7,2019,,pronom,UNKNOWN,\n"
+			+ "empty,0,2019,,,,\n";
+
+		Disk expected
+			= ExtractSiegfriedData.extractSiegfriedDataFromString(json, "");
+
+		/* The format is told by the content ... */
+		assertEqualDisks(expected,
+			ExtractSiegfriedData.extractSiegfriedDataFromStream(
+				stream(yaml), "1.ISO"));
+		assertEqualDisks(expected,
+			ExtractSiegfriedData.extractSiegfriedDataFromStream(
+				stream(csv), "1.ISO"));
+
+		/* ... or by the extension. */
+		assertEqualDisks(expected,
+			ExtractSiegfriedData.extractSiegfriedDataFromStream(
+				stream("\n" + csv), "1.csv"));
+		assertEquals(SiegfriedFormat.YAML,
+			SiegfriedFormat.fromName("out.YML"));
+		assertEquals(null, SiegfriedFormat.fromName("1.ISO"));
+
+		/* Flawed outputs are JSONExceptions in any format. */
+		boolean exception = false;
+		try 
+		{
+			ExtractSiegfriedData.extractSiegfriedDataFromStream(
+				stream("filename,filesize\n\"open,1\n"), "");
+		}
+		catch(org.json.JSONException e)
+		{
+			exception = true;
+		}
+		assertTrue(exception);
+	}
+
+	public static void testExtractDroidAndFido() throws IOException
+	{
+		/* The same files as identified by DROID and FIDO. */
+		String json = "{\"files\":[{\"filename\":\"dir/a, b.pdf\","
+			+ "\"filesize\":1024,\"matches\":[{\"id\":\"fmt/18\"},"
+			+ "{\"id\":\"fmt/19\"}]},{\"filename\":\"dir/b.bin\","
+			+ "\"filesize\":7,\"matches\":[{}]},"
+			+ "{\"filename\":\"c.txt\",\"filesize\":0,"
+			+ "\"matches\":[{\"id\":\"x-fmt/111\"}]}]}";
+
+		/* Two formats in extra columns, a folder and a file exported
+		 * with one row per format. */
+		String droid = "\"ID\",\"PARENT_ID\",\"URI\",\"FILE_PATH\","
+			+ "\"NAME\",\"METHOD\",\"STATUS\",\"SIZE\",\"TYPE\",\"EXT\","
+			+ "\"LAST_MODIFIED\",\"EXTENSION_MISMATCH\",\"HASH\","
+			+ "\"FORMAT_COUNT\",\"PUID\",\"MIME_TYPE\",\"FORMAT_NAME\","
+			+ "\"FORMAT_VERSION\"\n"
+			+ "\"1\",\"\",\"file:/dir/\",\"dir\",\"dir\",\"\",\"Done\",\"\","
+			+ "\"Folder\",\"\",\"\",\"false\",\"\",\"\",\"\",\"\",\"\",\"\"\n"
+			+ "\"2\",\"1\",\"file:/dir/a,%20b.pdf\",\"dir/a, b.pdf\",\"a, b.pdf\","
+			+ "\"Signature\",\"Done\",\"1024\",\"File\",\"pdf\",\"\",\"false\","
+			+ "\"\",\"2\",\"fmt/18\",\"application/pdf\",\"PDF\",\"1.4\","
+			+ "\"fmt/19\",\"application/pdf\",\"PDF\",\"1.5\"\n"
+			+ "\"3\",\"1\",\"file:/dir/b.bin\",\"dir/b.bin\",\"b.bin\",\"\","
+			+ "\"Done\",\"7\",\"File\",\"bin\",\"\",\"false\",\"\",\"0\",\"\","
+			+ "\"\",\"\",\"\"\n"
+			+ "\"4\",\"\",\"file:/c.txt\",\"c.txt\",\"c.txt\",\"Extension\","
+			+ "\"Done\",\"0\",\"File\",\"txt\",\"\",\"false\",\"\",\"1\","
+			+ "\"x-fmt/111\",\"text/plain\",\"Plain Text File\",\"\"\n";
+
+		String fido = "OK,47,fmt/18,\"Acrobat PDF 1.4\",\"PDF 1.4\",1024,"
+			+ "\"dir/a, b.pdf\",\"application/pdf\",\"signature\"\n"
+			+ "OK,47,fmt/19,\"Acrobat PDF 1.5\",\"PDF 1.5\",1024,"
+			+ "\"dir/a, b.pdf\",\"application/pdf\",\"signature\"\n"
+			+ "KO,12,,,,7,\"dir/b.bin\",,\"fail\"\n"
+			+ "OK,3,x-fmt/111,\"Plain Text File\",\"\",0,\"c.txt\","
+			+ "\"text/plain\",\"extension\"\n";
+
+		Disk expected
+			= ExtractSiegfriedData.extractSiegfriedDataFromString(json, "");
+
+		/* A report named '.csv' is still told by its content. */
+		assertEqualDisks(expected,
+			ExtractSiegfriedData.extractSiegfriedDataFromStream(
+				stream(droid), "profile.csv"));
+		assertEqualDisks(expected,
+			ExtractSiegfriedData.extractSiegfriedDataFromStream(
+				stream(fido), "fido.csv"));
+		assertEqualDisks(expected,
+			ExtractSiegfriedData.extractSiegfriedDataFromStream(
+				stream(fido), "1.ISO"));
+
+		/* Unknown formats are UNKNOWN, so they're ignored by the
+		 * statistics just like unknown formats of Siegfried. */
+		Disk disk = ExtractSiegfriedData.extractSiegfriedDataFromStream(
+			stream(droid), "");
+		assertEquals("UNKNOWN", disk.files[1].getMatch(0).pronom());
+
+		boolean exception = false;
+		try 
+		{
+			ExtractSiegfriedData.extractSiegfriedDataFromStream(
+				stream("OK,1,fmt/1\n"), "");
+		}
+		catch(org.json.JSONException e)
+		{
+			exception = true;
+		}
+		assertTrue(exception);
+	}
+
+	/* Compares the files and matches of two disks. */
+	private static void assertEqualDisks(Disk expected, Disk disk)
+	{
+		assertEquals(expected.files.length, disk.files.length);
+		for (int i = 0; i < expected.files.length; i++)
+		{
+			SiegfriedFile file = disk.files[i];
+			assertEquals(expected.files[i].getFilePath(), file.getFilePath());
+			assertEquals(expected.files[i].fileSize(), file.fileSize());
+			assertEquals(expected.files[i].matchCount(), file.matchCount());
+			for (int match = 0; match < file.matchCount(); match++)
+			{
+				assertEquals(expected.files[i].getMatch(match).pronom(),
+					file.getMatch(match).pronom());
+			}
+		}
+	}
+
+	public static void testExtractPronomsParallel() throws IOException
+	{
+		/* Create a directory with some Siegfried outputs,
+		 * one of them corrupted. */
+		Path directory = Files.createTempDirectory("siegfriedData");
+		for (int i = 0; i < 20; i++)
+		{
+			String json = (i == 7 ? "{\"files\":[" : "{\"files\":[{\"matches\":"
+				+ "[{\"id\":\"fmt/" + i + "\"}]}]}");
+			Files.write(directory.resolve(i + ".ISO"),
+				json.getBytes(StandardCharsets.UTF_8));
+		}
+
+		ArrayList<Disk> expected = ExtractSiegfriedData.extractPronoms(
+			directory.toString() + File.separator);
+		ArrayList<Disk> result = ExtractSiegfriedData.extractPronoms(
+			directory.toString() + File.separator, 4);
+
+		/* The corrupted output is skipped, the order is kept. */
+		assertEquals(19, result.size());
+		assertEquals(expected.size(), result.size());
+		for (int i = 0; i < result.size(); i++)
+		{
+			assertEquals(expected.get(i).name, result.get(i).name);
+			assertEquals(expected.get(i).files[0].getMatch(0).pronom(),
+				result.get(i).files[0].getMatch(0).pronom());
+		}
+
+		for (File file : directory.toFile().listFiles()) { file.delete(); }
+		Files.delete(directory);
+	}
+
+	/* Wraps a string as a stream of UTF-8 bytes. */
+	private static ByteArrayInputStream stream(String text)
+	{
+		return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+	}
+
 	public static void testExtractSiegfriedDataFromFile(String directory)
 		throws IOException
 	{
@@ -28,6 +28,11 @@ package systemRecommendation;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+
 public class FolderTest {
 
 	public static void test()
@@ -46,5 +51,298 @@ public class FolderTest {
 		folder.addFile(file1);
 		assertTrue(20 == folder.getFolder("my subfolder").size(1));
 		assertTrue(30 == folder.size(1));
+
+		/* Paths share their folders. Empty names and the filename
+		 * aren't folders. */
+		Folder root = new Folder("");
+		Folder c = root.addPath("a/b/c/file.txt");
+		assertTrue(c == root.addPath("a/b/c/other.txt"));
+		assertTrue(c == root.addPath("/a//b/c/"
+			+ "directory as file/"));
+		assertTrue(root == root.addPath("file.txt"));
+		assertTrue(root == root.addPath(null));
+		assertTrue(root == root.addPath("///"));
+		assertEquals(1, root.folderCount());
+		assertTrue(c == root.getFolder("a").getFolder("b").getFolder("c"));
+		assertEquals("c", c.name());
+
+		/* Subfolders are kept by name, whatever the order of adding. */
+		Folder b = root.getFolder("a").getFolder("b");
+		for (String name : new String[] {"x", "d", "z", "ca", "", "c"})
+		{
+			b.addFolder(name);
+		}
+		assertEquals(6, b.folderCount());
+		assertEquals("", b.folder(0).name());
+		assertEquals("ca", b.folder(2).name());
+		assertEquals("z", b.folder(5).name());
+		assertTrue(c == b.getFolder("c"));
+		assertNull(b.getFolder("y"));
+		assertEquals(6, b.folders().size());
+		assertTrue(b.folder(4) == b.folders().get("x"));
+
+		/* Folder names are shared by all folders of the same name. */
+		assertTrue(c.name() == new Folder(new String("c")).name());
+
+		/* A disk orders its files into folders. */
+		SiegfriedFile file2 = new SiegfriedFile(30, "dir/sub/f");
+		SiegfriedFile file3 = new SiegfriedFile(40, "dir/g");
+		SiegfriedFile file4 = new SiegfriedFile(50, 3);
+		Disk disk = new Disk(new SiegfriedFile[] {file2, null, file3, file4},
+			"d");
+		assertEquals(1, disk.disk().fileCount());
+		assertTrue(file4 == disk.disk().file(0));
+		Folder dir = disk.disk().getFolder("dir");
+		assertEquals(1, dir.files().size());
+		assertTrue(file3 == dir.files().get(0));
+		assertTrue(file2 == dir.getFolder("sub").file(0));
+		assertTrue(50 + 0.5 * (40 + 0.5 * 30) == disk.disk().size(0.5));
+
+		/* Any depth penalty, one after the other. */
+		assertTrue(50 + 40 + 30 == disk.disk().size(1));
+		assertTrue(50 + 0.25 * (40 + 0.25 * 30) == disk.disk().size(0.25));
+		assertTrue(50 == disk.disk().size(0));
+		assertTrue(disk.disk() == dir.parent());
+		assertNull(disk.disk().parent());
+
+		/* Building other trees doesn't change this one, even at
+		 * the same time. */
+		IntStream.range(0, 16).parallel().forEach(i ->
+		{
+			Disk other = new Disk(new SiegfriedFile[] {
+				new SiegfriedFile(i, "x/y/z"), new SiegfriedFile(1, "x/w")},
+				"" + i);
+			assertTrue(0.5 * (1 + 0.5 * i) == other.disk().size(0.5));
+		});
+		assertTrue(40 + 0.5 * 30 == dir.size(0.5));
+		dir.getFolder("sub").addFile(new SiegfriedFile(2, ""));
+		assertTrue(40 + 0.5 * 32 == dir.size(0.5));
+		assertTrue(50 + 0.5 * (40 + 0.5 * 32) == disk.disk().size(0.5));
+
+		/* The folders of a disk are built once, whoever asks first. */
+		Disk lazy = new Disk(new SiegfriedFile[] {file2, file3}, "lazy");
+		assertEquals(1, IntStream.range(0, 16).parallel()
+			.mapToObj(i -> lazy.disk()).distinct().count());
+		assertTrue(lazy.disk() == lazy.disk());
+		assertTrue(file3 == lazy.disk().getFolder("dir").file(0));
+
+		/* A folder is scored like a disk of its files alone. With roots
+		 * of powers of two, the profile agrees with the disk. */
+		String[] paths = {"DATA/PROJECTS/a.pdf", "DATA/PROJECTS/x/b.pdf",
+			"DATA/PROJECTS/x/y/c.txt", "DATA/other.txt", "top.pdf"};
+		String[] pronoms = {"fmt/18", "fmt/18", "x-fmt/111", "fmt/20",
+			"fmt/19"};
+		SiegfriedFile[] whole = new SiegfriedFile[paths.length];
+		SiegfriedFile[] part = new SiegfriedFile[3];
+		for (int i = 0; i < paths.length; i++)
+		{
+			PronomMatch[] matches = {new PronomMatch(pronoms[i])};
+			int size = 1 << (2 * i + 10);
+			whole[i] = new SiegfriedFile(size, paths[i], matches);
+			if (i < part.length)
+			{
+				part[i] = new SiegfriedFile(size,
+					paths[i].substring("DATA/PROJECTS/".length()), matches);
+			}
+		}
+		Folder projects = new Disk(whole, "whole").disk()
+			.getPath("/DATA//PROJECTS/");
+		assertEquals("PROJECTS", projects.name());
+		assertNull(projects.parent().getPath("PROJECTS/z"));
+		assertEquals(3, projects.profile().fileCount());
+		assertEquals(2, projects.profile().fileCount(
+			PronomRegistry.id("fmt/18")));
+
+		PronomStatistics pronomStats
+			= new PronomStatistics(new PronomSample(10, 1));
+		SystemStatistics systemStats = new SystemStatistics("");
+		Disk partDisk = new Disk(part, "part");
+		PronomValues expected = PronomRelevance.relevances(partDisk,
+			pronomStats, systemStats, 0.5);
+		PronomValues relevances = PronomRelevance.relevances(projects,
+			pronomStats, systemStats, 0.5);
+		assertEquals(2, relevances.size());
+		assertEquals(expected.size(), relevances.size());
+		for (int pronom : expected.ids())
+		{
+			assertEquals(expected.get(pronom), relevances.get(pronom), 1e-12);
+		}
+		assertEquals(-1, SystemRecommendation.chooseSystems(projects,
+			pronomStats, systemStats, 0.5).chooseSystems()[0]);
+
+		/* Otherwise, a folder is scored like the profile of such a disk,
+		 * which doesn't cut the penalized sizes to integers. */
+		int[] sizes = {10000, 121, 1000, 7, 5};
+		for (int i = 0; i < paths.length; i++)
+		{
+			PronomMatch[] matches = {new PronomMatch(pronoms[i])};
+			whole[i] = new SiegfriedFile(sizes[i], paths[i], matches);
+			if (i < part.length)
+			{
+				part[i] = new SiegfriedFile(sizes[i],
+					paths[i].substring("DATA/PROJECTS/".length()), matches);
+			}
+		}
+		projects = new Disk(whole, "whole").disk().getPath("DATA/PROJECTS");
+		partDisk = new Disk(part, "part");
+		relevances = PronomRelevance.relevances(projects,
+			pronomStats, systemStats, 0.5);
+		expected = PronomRelevance.relevances(DiskProfile.of(partDisk),
+			pronomStats, systemStats, 0.5);
+		PronomValues ofFiles = PronomRelevance.relevances(partDisk,
+			pronomStats, systemStats, 0.5);
+		assertEquals(expected.size(), relevances.size());
+		for (int pronom : expected.ids())
+		{
+			assertEquals(expected.get(pronom), relevances.get(pronom), 1e-12);
+		}
+		int text = PronomRegistry.id("x-fmt/111");
+		assertTrue(Math.abs(ofFiles.get(text) - relevances.get(text)) > 1e-3);
+
+		/* Profiles are built when asked for and follow files added
+		 * afterwards, above and below folders asked before. */
+		Folder scored = new Folder("");
+		scored.addPath("a/b/f").addFile(new SiegfriedFile(4, "a/b/f",
+			new PronomMatch[] {new PronomMatch("fmt/18")}));
+		assertEquals(1, scored.getPath("a/b").profile().fileCount());
+		assertEquals(1, scored.profile().fileCount());
+		scored.addPath("a/c/g").addFile(new SiegfriedFile(9, "a/c/g",
+			new PronomMatch[] {new PronomMatch("fmt/19")}));
+		assertEquals(2, scored.profile().fileCount());
+		assertEquals(2, scored.getPath("a").profile().fileCount());
+		assertEquals(1, scored.getPath("a/b").profile().fileCount());
+		assertEquals(3, scored.profile().maxDepth());
+		assertEquals(1, scored.getPath("a/c").profile().maxDepth());
+
+		/* Ordered in parallel slices, the files make the same tree. */
+		SiegfriedFile[] many = new SiegfriedFile[5000];
+		for (int i = 0; i < many.length; i++)
+		{
+			many[i] = (i % 97 == 0 ? null : new SiegfriedFile(i,
+				"d" + (i % 7) + "/s" + (i % 11) + (i % 3 == 0 ? "/t" : "")
+				+ "/f" + i, new PronomMatch[] {
+					new PronomMatch("fmt/" + (i % 13))}));
+		}
+		Folder sequential = Disk.orderFiles(many, 0, many.length);
+		for (int slice : new int[] { 1, 37, 1000, 5000, 10000 })
+		{
+			assertSameTree(sequential, Disk.orderFiles(many, slice));
+		}
+		assertEquals(0, Disk.orderFiles(new SiegfriedFile[0], 10)
+			.folderCount());
+
+		/* Folders are walked before or after their subfolders. */
+		Folder tree = new Folder("");
+		for (String path : new String[] {"b/e/f", "a/c/f", "a/d/f", "b/f"})
+		{
+			tree.addPath(path).addFile(new SiegfriedFile(1, path));
+		}
+		assertEquals(",a,c,d,b,e", names(tree.preOrder()));
+		assertEquals("c,d,a,e,b,", names(tree.postOrder()));
+		assertEquals("c", names(tree.getPath("a/c").preOrder()));
+		boolean exception = false;
+		try
+		{
+			Iterator<Folder> iterator = tree.getPath("a/c").postOrder();
+			iterator.next();
+			iterator.next();
+		}
+		catch (NoSuchElementException e)
+		{
+			exception = true;
+		}
+		assertTrue(exception);
+
+		/* A visitor may skip subfolders. */
+		StringBuilder visits = new StringBuilder();
+		tree.accept(new Folder.Visitor()
+		{
+			@Override
+			public boolean preVisit(Folder folder)
+			{
+				visits.append("+" + folder.name());
+				return !folder.name().equals("a");
+			}
+
+			@Override
+			public void postVisit(Folder folder)
+			{
+				visits.append("-" + folder.name());
+			}
+		});
+		assertEquals("++a-a+b+e-e-b-", visits.toString());
+
+		/* Trees far deeper than the call stack are built, merged, sized
+		 * and walked. */
+		int depth = 100000;
+		StringBuilder deepPath = new StringBuilder();
+		for (int i = 0; i < depth; i++) { deepPath.append("l/"); }
+		SiegfriedFile[] deepFiles = {
+			new SiegfriedFile(4, deepPath + "f", new PronomMatch[] {
+				new PronomMatch("fmt/18")}),
+			new SiegfriedFile(9, "l/l/f", new PronomMatch[] {
+				new PronomMatch("fmt/19")})};
+		Folder deep = Disk.orderFiles(deepFiles, 1);
+		assertTrue(4 + 9 == deep.size(1));
+		assertTrue(9 * 0.25 == deep.size(0.5));
+		assertEquals(depth + 1, deep.profile().maxDepth());
+		int[] counts = new int[2];
+		deep.accept(new Folder.Visitor()
+		{
+			@Override
+			public void postVisit(Folder folder) { counts[0]++; }
+		});
+		for (Iterator<Folder> i = deep.preOrder(); i.hasNext(); i.next())
+		{
+			counts[1]++;
+		}
+		assertEquals(depth + 1, counts[0]);
+		assertEquals(depth + 1, counts[1]);
+		assertTrue(deepFiles[0] == deep.postOrder().next().file(0));
+	}
+	
+	/* The names of the folders of the iteration, divided by commas. */
+	private static String names(Iterator<Folder> folders)
+	{
+		StringBuilder names = new StringBuilder(folders.next().name());
+		while (folders.hasNext())
+		{
+			names.append(",").append(folders.next().name());
+		}
+		return names.toString();
+	}
+	
+	/* Both trees have folders of the same names, the same files in the
+	 * same order and the same sizes and profiles. */
+	private static void assertSameTree(Folder expected, Folder folder)
+	{
+		assertEquals(expected.name(), folder.name());
+		assertEquals(expected.fileCount(), folder.fileCount());
+		for (int i = 0; i < expected.fileCount(); i++)
+		{
+			assertTrue(expected.file(i) == folder.file(i));
+		}
+		for (double depthPenalty : new double[] { 1, 0.5 })
+		{
+			assertTrue(expected.size(depthPenalty) == folder.size(depthPenalty));
+		}
+		DiskProfile profile = folder.profile();
+		assertEquals(expected.profile().fileCount(), profile.fileCount());
+		assertTrue(Arrays.equals(expected.profile().ids(), profile.ids()));
+		PronomValues relevances = expected.profile().matchRelevances(0.5);
+		for (int pronom : relevances.ids())
+		{
+			assertEquals(expected.profile().fileCount(pronom),
+				profile.fileCount(pronom));
+			assertEquals(relevances.get(pronom),
+				profile.matchRelevances(0.5).get(pronom), 1e-12);
+		}
+
+		assertEquals(expected.folderCount(), folder.folderCount());
+		for (int i = 0; i < expected.folderCount(); i++)
+		{
+			assertTrue(folder == folder.folder(i).parent());
+			assertSameTree(expected.folder(i), folder.folder(i));
+		}
 	}
 }
@@ -0,0 +1,114 @@
+/* MappedSiegfriedReaderTest.java
+ *
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class MappedSiegfriedReaderTest {
+
+	public static void test() throws IOException
+	{
+		/* Skipped values of all kinds, escapes, a non-ASCII filename,
+		 * sizes that aren't plain numbers and matches without an id. */
+		String json = "{\"siegfried\":\"1.7.8\",\"scandate\":\"a \\\"quoted\\\" }\","
+			+ "\"identifiers\":[{\"name\":\"pronom\",\"details\":[1, {\"x\":"
+			+ "\"]\"}]}],\"files\":[{\"filename\":\"C:\\\\dir\\\\f\u00e4.pdf\","
+			+ "\"filesize\":1024,\"modified\":\"2019\",\"errors\":\"\","
+			+ "\"matches\":[{\"ns\":\"pronom\",\"id\":\"fmt/18\",\"basis\":"
+			+ "\"byte match at [[0 8]]\"},{\"id\":\"fmt/19\"}]},\n"
+			+ "{\"matches\":[{\"id\":null},{}],\"filename\":\"a/b/\\u0063.txt\"},"
+			+ "{\"filesize\":\"77\"},{\"filesize\":1.5e3},{\"filesize\":null},"
+			+ "{\"filesize\":3000000000,\"matches\":\"none\"}]}";
+
+		Path path = Files.createTempFile("siegfried", ".json");
+		Files.write(path, json.getBytes(StandardCharsets.UTF_8));
+
+		Disk expected
+			= ExtractSiegfriedData.extractSiegfriedDataFromString(json, "d");
+		Disk mapped = MappedSiegfriedReader.extractSiegfriedDataFromFile(
+			path.toString(), "d");
+
+		assertEquals(expected.files.length, mapped.files.length);
+		for (int i = 0; i < expected.files.length; i++)
+		{
+			SiegfriedFile file = mapped.files[i];
+			assertEquals(expected.files[i].getFilePath(), file.getFilePath());
+			assertEquals(expected.files[i].fileSize(), file.fileSize());
+			assertEquals(expected.files[i].matchCount(), file.matchCount());
+			for (int match = 0; match < file.matchCount(); match++)
+			{
+				assertEquals(expected.files[i].getMatch(match).pronom(),
+					file.getMatch(match).pronom());
+			}
+		}
+
+		/* Without paths, both readers keep only the depth. */
+		Disk compact = ExtractSiegfriedData.extractSiegfriedDataFromFile(
+			path.toString(), "d", false);
+		Disk compactMapped = MappedSiegfriedReader.extractSiegfriedDataFromFile(
+			path.toString(), "d", false);
+		assertEquals(expected.files.length, compact.files.length);
+		for (int i = 0; i < expected.files.length; i++)
+		{
+			assertNull(compact.files[i].getFilePath());
+			assertNull(compactMapped.files[i].getFilePath());
+			assertEquals(expected.files[i].depth(), compact.files[i].depth());
+			assertEquals(expected.files[i].depth(),
+				compactMapped.files[i].depth());
+			assertEquals(expected.files[i].matchCount(),
+				compact.files[i].matchCount());
+		}
+		assertEquals(3, compact.files[1].depth());
+
+		/* A flawed structure shall throw a JSONException. */
+		Files.write(path, "{\"files\":[{\"filesize\":1}"
+			.getBytes(StandardCharsets.UTF_8));
+		boolean exception = false;
+		try
+		{
+			MappedSiegfriedReader.extractSiegfriedDataFromFile(
+				path.toString(), "");
+		}
+		catch(org.json.JSONException e)
+		{
+			exception = true;
+		}
+		assertTrue(exception);
+
+		/* An empty object yields an empty disk. */
+		Files.write(path, " {} ".getBytes(StandardCharsets.UTF_8));
+		assertEquals(0, MappedSiegfriedReader.extractSiegfriedDataFromFile(
+			path.toString(), "").files.length);
+
+		Files.delete(path);
+	}
+}
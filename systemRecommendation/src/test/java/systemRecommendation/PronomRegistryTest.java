@@ -0,0 +1,101 @@
+/* PronomRegistryTest.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+
+package systemRecommendation;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class PronomRegistryTest {
+
+	public static void test()
+	{
+		/* A match without id differs from Siegfried's "UNKNOWN",
+		 * yet both read "UNKNOWN" and stand for the unknown format. */
+		assertEquals(PronomRegistry.NO_ID, PronomRegistry.id(null));
+		assertEquals(PronomRegistry.UNKNOWN, PronomRegistry.id("UNKNOWN"));
+		assertTrue(PronomRegistry.NO_ID != PronomRegistry.UNKNOWN);
+		PronomMatch missing = new PronomMatch(PronomRegistry.NO_ID);
+		assertEquals("UNKNOWN", missing.pronom());
+		assertEquals(PronomRegistry.UNKNOWN, missing.format());
+
+		/* Looking up a pronom never seen doesn't register it. */
+		int size = PronomRegistry.size();
+		assertEquals(-1, PronomRegistry.lookup("registry/never-seen"));
+		assertEquals(size, PronomRegistry.size());
+
+		/* Threads interning the same pronoms get the same dense ids. */
+		List<int[]> threads = IntStream.range(0, 4).parallel()
+			.mapToObj(thread ->
+			{
+				int[] ids = new int[3000];
+				for (int i = 0; i < ids.length; i++)
+				{
+					ids[i] = PronomRegistry.id(new String("registry/" + i));
+				}
+				return ids;
+			})
+			.collect(Collectors.toList());
+		int[] ids = threads.get(0);
+		for (int[] other : threads)
+		{
+			for (int i = 0; i < ids.length; i++)
+			{
+				assertEquals(ids[i], other[i]);
+				assertEquals("registry/" + i, PronomRegistry.pronom(ids[i]));
+			}
+		}
+		assertEquals(size + 3000, PronomRegistry.size());
+		assertEquals(ids[17], PronomRegistry.lookup("registry/17"));
+
+		/* Counts and values by id convert from and to maps. */
+		HashMap<String, Integer> map = new HashMap<String, Integer>();
+		map.put("fmt/18", 3);
+		map.put("fmt/19", 1);
+		PronomCounts counts = new PronomCounts(map);
+		assertEquals(map, counts.toMap());
+		assertEquals(4, counts.total());
+		counts.add(PronomRegistry.id("fmt/19"), -1);
+		assertEquals(1, counts.size());
+		assertEquals(0, counts.get("fmt/19"));
+		assertEquals(0, counts.get("registry/never-seen"));
+		assertEquals(new PronomCounts(counts.toMap()), counts);
+
+		PronomValues values = new PronomValues();
+		values.add(PronomRegistry.id("fmt/18"), 0.5);
+		values.add(PronomRegistry.id("fmt/18"), 0.25);
+		values.put(PronomRegistry.UNKNOWN, 0);
+		assertEquals(2, values.size());
+		assertTrue(values.contains(PronomRegistry.UNKNOWN));
+		assertEquals(0.75, values.toMap().get("fmt/18"), 0);
+		assertEquals(0, values.get(-1), 0);
+	}
+}
@@ -0,0 +1,97 @@
+/* PronomSampleTest.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class PronomSampleTest {
+
+	public static void test() throws IOException
+	{
+		/* A population of files, 50% fmt/1, 30% fmt/2 and 20% fmt/3,
+		 * some with a second match or an unknown one. */
+		PronomSample sample = new PronomSample(5000, 42);
+		PronomSample copy = new PronomSample(5000, 42);
+		int files = 200000;
+		for (int i = 0; i < files; i++)
+		{
+			SiegfriedFile file = new SiegfriedFile(i, "f" + i);
+			file.addMatch(new PronomMatch(i % 10 < 5 ? "fmt/1"
+				: i % 10 < 8 ? "fmt/2" : "fmt/3"));
+			if (i % 7 == 0)
+			{
+				file.addMatch(new PronomMatch(PronomRegistry.NO_ID));
+			}
+			sample.accept(file);
+			copy.accept(file);
+		}
+		assertEquals(files, sample.population());
+		assertEquals(5000, sample.size());
+
+		/* The same seed yields the same sample. */
+		assertEquals(sample.frequency(), copy.frequency());
+
+		PronomStatistics statistics = new PronomStatistics(sample);
+		assertEquals(5000, statistics.getNumberOfMatches());
+		double[] expected = { 0.5, 0.3, 0.2 };
+		for (int i = 0; i < expected.length; i++)
+		{
+			String pronom = "fmt/" + (i + 1);
+			double bound = statistics.getConfidenceBound(pronom);
+			assertTrue(bound > 0.005 && bound < 0.05);
+			assertEquals(expected[i], statistics.getRelativeFrequency(pronom),
+				bound);
+		}
+		assertEquals(3.0 / 5000, statistics.getConfidenceBound("fmt/4"),
+			0.0000001);
+
+		/* A sample holding the whole corpus is exact. */
+		Path directory = Files.createTempDirectory("siegfriedSample");
+		Files.write(directory.resolve("1.ISO"), ("{\"files\":["
+			+ "{\"matches\":[{\"id\":\"fmt/1\"},{\"id\":\"fmt/2\"}]},"
+			+ "{\"matches\":[{\"id\":\"fmt/1\"}]},{\"matches\":[{}]}]}")
+			.getBytes(StandardCharsets.UTF_8));
+
+		PronomStatistics exact = new PronomStatistics(directory.toString());
+		statistics = new PronomStatistics(directory.toString(), 2,
+			new PronomSample(10, 1));
+		assertEquals(exact.getNumberOfMatches(),
+			statistics.getNumberOfMatches());
+		assertEquals(exact.getRelativeFrequency("fmt/1"),
+			statistics.getRelativeFrequency("fmt/1"), 0.0000001);
+		assertEquals(0, statistics.getConfidenceBound("fmt/1"), 0);
+		assertEquals(0, exact.getConfidenceBound("fmt/1"), 0);
+
+		Files.delete(directory.resolve("1.ISO"));
+		Files.delete(directory);
+	}
+}
@@ -0,0 +1,143 @@
+/* ReadAheadTest.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class ReadAheadTest {
+
+	public static void test() throws IOException, InterruptedException
+	{
+		/* A corpus with small and large outputs, an empty and a corrupted
+		 * one and an archive. */
+		Path root = Files.createTempDirectory("siegfriedReadAhead");
+		Path nested = Files.createDirectory(root.resolve("nested"));
+		for (int i = 0; i < 30; i++)
+		{
+			StringBuilder matches = new StringBuilder("{\"id\":\"fmt/" + i + "\"}");
+			for (int j = 0; j < i * 10; j++)
+			{
+				matches.append(",{\"id\":\"fmt/" + i + "\"}");
+			}
+			Files.write((i % 2 == 0 ? root : nested).resolve(i + ".ISO"),
+				("{\"files\":[{\"filesize\":4,\"matches\":[" + matches
+				+ "]}]}").getBytes(StandardCharsets.UTF_8));
+		}
+		Files.write(root.resolve("empty.ISO"), new byte[0]);
+		Files.write(root.resolve("corrupted.ISO"),
+			"{\"files\":[".getBytes(StandardCharsets.UTF_8));
+		try (ZipOutputStream out = new ZipOutputStream(
+			Files.newOutputStream(root.resolve("archive.zip"))))
+		{
+			out.putNextEntry(new ZipEntry("x.ISO"));
+			out.write("{\"files\":[{\"matches\":[{\"id\":\"fmt/99\"}]}]}"
+				.getBytes(StandardCharsets.UTF_8));
+			out.closeEntry();
+		}
+
+		List<String> expected;
+		try (Stream<Disk> disks = SiegfriedCorpus.disks(root))
+		{
+			expected = disks.map(disk -> disk.name + disk.files.length)
+				.collect(Collectors.toList());
+		}
+
+		/* The same disks in the same order, whatever the depth and budget,
+		 * even if most outputs exceed the budget. */
+		for (ReadAhead readAhead : new ReadAhead[] { ReadAhead.DEFAULT,
+			new ReadAhead(1, 1), new ReadAhead(3, 2000) })
+		{
+			try (Stream<Disk> disks = readAhead.disks(root))
+			{
+				assertEquals(expected, disks.map(
+					disk -> disk.name + disk.files.length)
+					.collect(Collectors.toList()));
+			}
+		}
+
+		/* Giving up early is fine. */
+		try (Stream<Disk> disks = new ReadAhead(2, 100).disks(root))
+		{
+			assertTrue(disks.findFirst().isPresent());
+		}
+
+		PronomStatistics statistics
+			= new PronomStatistics(root.toString(), new ReadAhead(4, 4096));
+		assertEquals(new PronomStatistics(root.toString()).getNumberOfMatches(),
+			statistics.getNumberOfMatches());
+
+		/* Buffers handed back are reused, smaller ones give way to larger
+		 * ones, yet all of them stay within the budget. */
+		ReadAhead.Buffers buffers = new ReadAhead.Buffers(1000);
+		byte[] small = buffers.take(100);
+		assertEquals(128, small.length);
+		buffers.give(small);
+		assertTrue(small == buffers.take(30));
+		byte[] large = buffers.take(600);
+		assertEquals(872, large.length);
+		buffers.give(small);
+		buffers.give(large);
+		assertTrue(large == buffers.take(500));
+		assertTrue(small == buffers.take(100));
+		assertEquals(1000, buffers.allocated());
+		buffers.give(small);
+		buffers.give(large);
+		assertEquals(1000, buffers.take(1000).length);
+		assertEquals(1000, buffers.allocated());
+
+		boolean exception = false;
+		try
+		{
+			new ReadAhead(0, 1);
+		}
+		catch(IllegalArgumentException e)
+		{
+			exception = true;
+		}
+		assertTrue(exception);
+
+		try (Stream<Path> paths = Files.walk(root))
+		{
+			for (Path path : paths.sorted(Comparator.reverseOrder())
+				.collect(Collectors.toList()))
+			{
+				Files.delete(path);
+			}
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/* RelevanceAccumulatorTest.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+
+public class RelevanceAccumulatorTest {
+
+	public static void test() throws IOException
+	{
+		/* Files of all depths and sizes, with several, single, unknown
+		 * and no matches. */
+		String json = "{\"files\":["
+			+ "{\"filename\":\"a.pdf\",\"filesize\":10000,\"matches\":"
+			+ "[{\"id\":\"fmt/18\"},{\"id\":\"fmt/19\"}]},"
+			+ "{\"filename\":\"dir/b.pdf\",\"filesize\":777,\"matches\":"
+			+ "[{\"id\":\"fmt/18\"}]},"
+			+ "{\"filename\":\"dir/sub/c.txt\",\"filesize\":123456,\"matches\":"
+			+ "[{\"id\":\"x-fmt/111\"}]},"
+			+ "{\"filename\":\"/d/e/f/g.bin\",\"filesize\":99,\"matches\":[{}]},"
+			+ "{\"filename\":\"h\",\"matches\":[{\"id\":\"fmt/20\"}]},"
+			+ "{\"filename\":\"i\",\"filesize\":5,\"matches\":[]}]}";
+
+		Path directory = Files.createTempDirectory("siegfriedRelevance");
+		Files.write(directory.resolve("1.ISO"),
+			json.replace("fmt/19", "fmt/20").getBytes(StandardCharsets.UTF_8));
+		PronomStatistics pronomStats
+			= new PronomStatistics(directory.toString());
+		SystemStatistics systemStats = new SystemStatistics("");
+
+		for (double depthPenalty : new double[] { 0.01, 0.4, 1 })
+		{
+			Disk disk = ExtractSiegfriedData.extractSiegfriedDataFromString(
+				json, "");
+			HashMap<String, Double> expected = PronomRelevance.pronomRelevances(
+				disk, pronomStats, systemStats, depthPenalty);
+
+			/* Stream the same output into the accumulator. */
+			RelevanceAccumulator accumulator
+				= new RelevanceAccumulator(depthPenalty);
+			ExtractSiegfriedData.streamSiegfriedOutput(new ByteArrayInputStream(
+				json.getBytes(StandardCharsets.UTF_8)), null, accumulator);
+			assertEquals(6, accumulator.fileCount());
+
+			HashMap<String, Double> relevances = PronomRelevance
+				.pronomRelevances(accumulator, pronomStats, systemStats);
+
+			assertEquals(expected.keySet(), relevances.keySet());
+			for (String pronom : expected.keySet())
+			{
+				assertEquals(expected.get(pronom), relevances.get(pronom),
+					0.000000001);
+			}
+		}
+
+		Files.delete(directory.resolve("1.ISO"));
+		Files.delete(directory);
+	}
+}
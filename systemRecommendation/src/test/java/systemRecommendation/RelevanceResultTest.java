@@ -0,0 +1,95 @@
+/* RelevanceResultTest.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+
+public class RelevanceResultTest {
+
+	public static void test()
+	{
+		Disk disk = new Disk(new SiegfriedFile[] {
+			new SiegfriedFile(10000, "a.pdf", new PronomMatch[] {
+				new PronomMatch("fmt/18"), new PronomMatch("fmt/19")}),
+			new SiegfriedFile(4096, "dir/b.pdf", new PronomMatch[] {
+				new PronomMatch("fmt/18")}),
+			new SiegfriedFile(1000000, "dir/sub/c.txt", new PronomMatch[] {
+				new PronomMatch("x-fmt/111")}),
+			new SiegfriedFile(99, "d", new PronomMatch[0])}, "d");
+
+		RelevanceResult result = PronomRelevance.fileRelevances(disk, 0.5);
+		assertTrue(disk == result.disk());
+		assertEquals(50, result.penalizedSize(0));
+		assertEquals(16, result.penalizedSize(1));
+		assertEquals(125, result.penalizedSize(2));
+		assertEquals(4, result.penalizedSize(3));
+		assertEquals(50.0 / 195, result.fileRelevance(0), 0);
+		assertEquals(50.0 / 195 / 2, result.matchRelevance(0, 1), 0);
+		assertEquals(16.0 / 195, result.matchRelevance(1, 0), 0);
+
+		PronomValues matches = result.matchRelevances();
+		assertEquals(3, matches.size());
+		assertEquals(50.0 / 195 / 2 + 16.0 / 195,
+			matches.get(PronomRegistry.id("fmt/18")), 0);
+
+		boolean exception = false;
+		try
+		{
+			result.matchRelevance(3, 0);
+		}
+		catch (IndexOutOfBoundsException e)
+		{
+			exception = true;
+		}
+		assertTrue(exception);
+
+		/* The same disk scored with several penalties at once gets the
+		 * same relevances as one penalty after the other. */
+		double[] penalties = DoubleStream.iterate(0.05, p -> p + 0.05)
+			.limit(20).toArray();
+		SystemStatistics systemStats = new SystemStatistics("");
+		PronomStatistics pronomStats
+			= new PronomStatistics(new PronomSample(10, 1));
+		List<HashMap<String, Double>> parallel = Arrays.stream(penalties)
+			.parallel().mapToObj(p -> PronomRelevance.pronomRelevances(
+				disk, pronomStats, systemStats, p))
+			.collect(Collectors.toList());
+		for (int i = 0; i < penalties.length; i++)
+		{
+			assertEquals(PronomRelevance.pronomRelevances(disk, pronomStats,
+				systemStats, penalties[i]), parallel.get(i));
+		}
+		assertEquals(50.0 / 195, PronomRelevance.fileRelevances(disk, 0.5)
+			.fileRelevance(0), 0);
+	}
+}
@@ -0,0 +1,206 @@
+/* SiegfriedArchiveTest.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class SiegfriedArchiveTest {
+
+	public static void test() throws IOException
+	{
+		Path directory = Files.createTempDirectory("siegfriedArchives");
+
+		/* A gzipped output. */
+		try (OutputStream out = new GZIPOutputStream(
+			Files.newOutputStream(directory.resolve("1.ISO.gz"))))
+		{
+			out.write(output("fmt/1"));
+		}
+
+		/* A zip archive with a directory, a corrupted output
+		 * and a gzipped entry. */
+		try (ZipOutputStream out = new ZipOutputStream(
+			Files.newOutputStream(directory.resolve("2.zip"))))
+		{
+			out.putNextEntry(new ZipEntry("batch/"));
+			out.putNextEntry(new ZipEntry("batch/a.ISO"));
+			out.write(output("fmt/2"));
+			out.putNextEntry(new ZipEntry("batch/corrupted.ISO"));
+			out.write("{\"files\":[".getBytes(StandardCharsets.UTF_8));
+			out.putNextEntry(new ZipEntry("batch/b.ISO.gz"));
+			out.write(gzip(output("fmt/3")));
+			out.closeEntry();
+		}
+
+		/* A gzipped tar archive with a long name and a YAML output. */
+		StringBuilder longName = new StringBuilder();
+		for (int i = 0; i < 30; i++) { longName.append("folder/"); }
+		longName.append("c.ISO");
+
+		ByteArrayOutputStream tar = new ByteArrayOutputStream();
+		tarEntry(tar, "dir/", '5', new byte[0]);
+		tarEntry(tar, "././@LongLink", 'L',
+			longName.toString().getBytes(StandardCharsets.UTF_8));
+		tarEntry(tar, "ignored", '0', output("fmt/4"));
+		tarEntry(tar, "d.yaml", '0', ("---\nsiegfried: 1.7.8\n---\n"
+			+ "filename : 'x'\nfilesize : 4\nmatches  :\n"
+			+ "  - ns    : 'pronom'\n    id    : 'fmt/5'\n")
+			.getBytes(StandardCharsets.UTF_8));
+		tar.write(new byte[1024]);
+		Files.write(directory.resolve("3.tar.gz"), gzip(tar.toByteArray()));
+
+		/* A plain output. */
+		Files.write(directory.resolve("4.ISO"), output("fmt/6"));
+
+		ArrayList<Disk> disks = new ArrayList<Disk>();
+		for (String name : new String[] { "1.ISO.gz", "2.zip", "3.tar.gz" })
+		{
+			disks.addAll(SiegfriedArchive.extractDisks(directory.resolve(name)));
+		}
+		disks.add(ExtractSiegfriedData.extractSiegfriedDataFromFile(
+			directory.resolve("4.ISO").toString(), "4.ISO"));
+
+		String[] names = { "1.ISO", "batch/a.ISO", "batch/b.ISO",
+			longName.toString(), "d.yaml", "4.ISO" };
+		assertEquals(names.length, disks.size());
+		for (int i = 0; i < names.length; i++)
+		{
+			assertEquals(names[i], disks.get(i).name);
+			assertEquals(1, disks.get(i).files.length);
+			assertEquals("fmt/" + (i + 1),
+				disks.get(i).files[0].getMatch(0).pronom());
+		}
+
+		/* The corpus reads archives in place, sequentially and parallel,
+		 * skipping a file named like an archive that isn't one. */
+		Files.write(directory.resolve("0.gz"), output("fmt/9"));
+		for (int workers = 1; workers <= 4; workers += 3)
+		{
+			ArrayList<Disk> corpus = ExtractSiegfriedData.extractPronoms(
+				directory.toString() + File.separator, workers);
+			assertEquals(names.length, corpus.size());
+		}
+		Files.delete(directory.resolve("0.gz"));
+
+		/* A truncated archive keeps what could be read. */
+		byte[] truncated = Files.readAllBytes(directory.resolve("3.tar.gz"));
+		Files.write(directory.resolve("3.tar.gz"),
+			java.util.Arrays.copyOf(truncated, truncated.length / 2));
+		assertTrue(SiegfriedArchive.extractDisks(
+			directory.resolve("3.tar.gz")).size() <= 2);
+
+		/* A corrupted output the reader gives up on early doesn't keep
+		 * the following entries from being read. */
+		StringBuilder corrupted = new StringBuilder("{\"files\":[x");
+		for (int i = 0; i < 2000; i++) { corrupted.append(' '); }
+		tar = new ByteArrayOutputStream();
+		tarEntry(tar, "corrupted.ISO", '0',
+			corrupted.toString().getBytes(StandardCharsets.UTF_8));
+		tarEntry(tar, "e.ISO", '0', output("fmt/7"));
+		tarEntry(tar, "f.ISO.gz", '0', gzip(output("fmt/8")));
+		tar.write(new byte[1024]);
+		Files.write(directory.resolve("5.tar"), tar.toByteArray());
+		ArrayList<Disk> afterCorrupted = SiegfriedArchive.extractDisks(
+			directory.resolve("5.tar"));
+		assertEquals(2, afterCorrupted.size());
+		assertEquals("e.ISO", afterCorrupted.get(0).name);
+		assertEquals("fmt/8",
+			afterCorrupted.get(1).files[0].getMatch(0).pronom());
+
+		/* A flawed header ends the archive like a truncation. */
+		byte[] flawed = tar.toByteArray();
+		int second = 512 + (2001 + 12 + 511) / 512 * 512 + 512
+			+ (output("fmt/7").length + 511) / 512 * 512;
+		flawed[second + 124] = 'x';
+		Files.write(directory.resolve("5.tar"), flawed);
+		afterCorrupted = SiegfriedArchive.extractDisks(
+			directory.resolve("5.tar"));
+		assertEquals(1, afterCorrupted.size());
+		assertEquals("e.ISO", afterCorrupted.get(0).name);
+
+		for (File file : directory.toFile().listFiles()) { file.delete(); }
+		Files.delete(directory);
+	}
+
+	/* A Siegfried output of a single file matching PRONOM. */
+	private static byte[] output(String pronom)
+	{
+		return ("{\"files\":[{\"filename\":\"f\",\"filesize\":4,\"matches\":"
+			+ "[{\"id\":\"" + pronom + "\"}]}]}")
+			.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte[] gzip(byte[] content) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (OutputStream out = new GZIPOutputStream(bytes))
+		{
+			out.write(content);
+		}
+		return bytes.toByteArray();
+	}
+
+	/* Writes a ustar header followed by the padded CONTENT. */
+	private static void tarEntry(ByteArrayOutputStream tar, String name,
+		char type, byte[] content)
+	{
+		byte[] header = new byte[512];
+		byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		System.arraycopy(bytes, 0, header, 0, bytes.length);
+		byte[] size = String.format("%011o", content.length)
+			.getBytes(StandardCharsets.US_ASCII);
+		System.arraycopy(size, 0, header, 124, size.length);
+		header[156] = (byte) type;
+		System.arraycopy("ustar\u000000".getBytes(StandardCharsets.US_ASCII),
+			0, header, 257, 8);
+
+		/* The checksum is computed with the checksum field being blank. */
+		java.util.Arrays.fill(header, 148, 156, (byte) ' ');
+		int checksum = 0;
+		for (byte b : header) { checksum += b & 0xFF; }
+		byte[] sum = String.format("%06o\u0000 ", checksum)
+			.getBytes(StandardCharsets.US_ASCII);
+		System.arraycopy(sum, 0, header, 148, sum.length);
+
+		tar.write(header, 0, 512);
+		tar.write(content, 0, content.length);
+		tar.write(new byte[(512 - content.length % 512) % 512], 0,
+			(512 - content.length % 512) % 512);
+	}
+}
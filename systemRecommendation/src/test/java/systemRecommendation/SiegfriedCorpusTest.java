@@ -0,0 +1,169 @@
+/* SiegfriedCorpusTest.java
+ * 
+ * Copyright (c) 2019 Felix Baumann
+ *
+ * felix.baumann.freiburg@gmail.com
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files
+ * (the "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to permit
+ * persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+ * DEALINGS IN THE SOFTWARE.
+ */
+
+package systemRecommendation;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class SiegfriedCorpusTest {
+
+	public static void test() throws IOException
+	{
+		/* A nested corpus with an archive and a corrupted output. */
+		Path root = Files.createTempDirectory("siegfriedCorpus");
+		Path nested = Files.createDirectories(root.resolve("a").resolve("b"));
+		Files.write(root.resolve("1.ISO"), output("fmt/1", "fmt/2"));
+		Files.write(nested.resolve("2.ISO"), output("fmt/2"));
+		Files.write(nested.resolve("3.ISO"),
+			"{\"files\":[".getBytes(StandardCharsets.UTF_8));
+		try (ZipOutputStream out = new ZipOutputStream(
+			Files.newOutputStream(root.resolve("a").resolve("4.zip"))))
+		{
+			out.putNextEntry(new ZipEntry("x.ISO"));
+			out.write(output("fmt/3"));
+			out.putNextEntry(new ZipEntry("y.ISO"));
+			out.write(("{\"files\":[{\"filesize\":4,\"matches\":[{}]}]}")
+				.getBytes(StandardCharsets.UTF_8));
+			out.closeEntry();
+		}
+
+		List<String> names;
+		try (Stream<Disk> disks = SiegfriedCorpus.disks(root))
+		{
+			names = disks.map(disk -> disk.name).collect(Collectors.toList());
+		}
+		assertEquals(4, names.size());
+		assertTrue(names.contains("1.ISO"));
+		assertTrue(names.contains("a/b/2.ISO"));
+		assertTrue(names.contains("x.ISO"));
+		assertTrue(names.contains("y.ISO"));
+
+		/* Parsing in parallel keeps the order. */
+		try (Stream<Disk> disks = SiegfriedCorpus.disks(root, 3))
+		{
+			assertEquals(names,
+				disks.map(disk -> disk.name).collect(Collectors.toList()));
+		}
+
+		/* Giving up early is fine. */
+		try (Stream<Disk> disks = SiegfriedCorpus.disks(root, 3))
+		{
+			assertTrue(disks.findFirst().isPresent());
+		}
+
+		/* The directory doesn't need a trailing separator. */
+		PronomStatistics statistics = new PronomStatistics(root.toString());
+		assertEquals(4, statistics.getNumberOfMatches());
+		assertEquals(0.5, statistics.getRelativeFrequency("fmt/2"), 0.0001);
+		assertEquals(0.25, statistics.getRelativeFrequency("fmt/3"), 0.0001);
+		assertEquals(4,
+			new PronomStatistics(root.toString(), 2).getNumberOfMatches());
+
+		/* Corrupted archives are skipped just like corrupted outputs. */
+		byte[] garbage = new byte[1500];
+		java.util.Arrays.fill(garbage, (byte) 'x');
+		Files.write(root.resolve("5.gz"), garbage);
+		Files.write(nested.resolve("6.tar"), garbage);
+		Files.write(nested.resolve("7.zip"), garbage);
+		try (Stream<Disk> disks = SiegfriedCorpus.disks(root))
+		{
+			assertEquals(4, disks.count());
+		}
+		try (Stream<Disk> disks = SiegfriedCorpus.disks(root, 3))
+		{
+			assertEquals(4, disks.count());
+		}
+		assertEquals(4,
+			new PronomStatistics(root.toString(), 2).getNumberOfMatches());
+		Path manifest = Files.createTempFile("siegfriedCorpus", ".manifest");
+		assertEquals(4, new PronomStatistics(root.toString(), 2, manifest)
+			.getNumberOfMatches());
+		Files.delete(manifest);
+
+		/* The entries of a large archive are handed over one by one,
+		 * in order, when parsed in parallel as well. */
+		try (ZipOutputStream out = new ZipOutputStream(
+			Files.newOutputStream(nested.resolve("8.zip"))))
+		{
+			for (int i = 0; i < 100; i++)
+			{
+				out.putNextEntry(new ZipEntry(i + ".ISO"));
+				out.write(output("fmt/" + i));
+			}
+			out.closeEntry();
+		}
+		try (Stream<Disk> disks = SiegfriedCorpus.disks(root))
+		{
+			names = disks.map(disk -> disk.name).collect(Collectors.toList());
+		}
+		assertEquals(104, names.size());
+		for (int workers = 2; workers <= 5; workers += 3)
+		{
+			try (Stream<Disk> disks = SiegfriedCorpus.disks(root, workers))
+			{
+				assertEquals(names,
+					disks.map(disk -> disk.name).collect(Collectors.toList()));
+			}
+			try (Stream<Disk> disks = SiegfriedCorpus.disks(root, workers))
+			{
+				assertEquals(3, disks.limit(3).count());
+			}
+		}
+
+		try (Stream<Path> paths = Files.walk(root))
+		{
+			for (Path path : paths.sorted(Comparator.reverseOrder())
+				.collect(Collectors.toList()))
+			{
+				Files.delete(path);
+			}
+		}
+	}
+
+	/* A Siegfried output of a single file matching PRONOMS. */
+	private static byte[] output(String... pronoms)
+	{
+		StringBuilder matches = new StringBuilder();
+		for (String pronom : pronoms)
+		{
+			if (matches.length() > 0) { matches.append(','); }
+			matches.append("{\"id\":\"" + pronom + "\"}");
+		}
+		return ("{\"files\":[{\"filename\":\"f\",\"filesize\":4,\"matches\":["
+			+ matches + "]}]}").getBytes(StandardCharsets.UTF_8);
+	}
+}
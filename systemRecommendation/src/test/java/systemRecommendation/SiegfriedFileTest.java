@@ -18,6 +18,58 @@ public class SiegfriedFileTest {
 		
 		SiegfriedFile file3 = new SiegfriedFile(1024, "/filename.iso");
 		assertEqualLists(file3.getDirectory(), new String[] {"", ""});
+
+		/* The depth is the length of the directory. */
+		for (String path : new String[] {"C:/this/is/the/directory/a.iso",
+			"a.iso", "", "/a.iso", "a//b/c.iso", "a/b/", "/", null})
+		{
+			SiegfriedFile file = new SiegfriedFile(1024, path);
+			assertEquals(file.getDirectory().length, file.depth());
+			assertEquals(file.depth(), SiegfriedFile.depth(path));
+		}
+		assertEquals("filename.iso", file0.getFilename());
+		assertEquals("b", new SiegfriedFile(1, "a/b/").getFilename());
+		assertEquals("", file2.getFilename());
+
+		/* A file without its path keeps the depth, size and matches. */
+		SiegfriedFile full = new SiegfriedFile(4096, "a/b/c/d.txt",
+			new PronomMatch[] {new PronomMatch("fmt/18")});
+		SiegfriedFile compact = full.withoutPath();
+		assertNull(compact.getFilePath());
+		assertEquals("", compact.getFilename());
+		assertEquals(4, compact.depth());
+		assertEqualLists(new String[] {"", "", "", ""},
+			compact.getDirectory());
+		assertEquals(4096, compact.fileSize());
+		assertEquals("fmt/18", compact.getMatch(0).pronom());
+		assertEquals(PronomRelevance.penalizedSize(full, 0.5),
+			PronomRelevance.penalizedSize(compact, 0.5));
+		assertTrue(compact == compact.withoutPath());
+
+		/* Files with the same matches share one immutable list. */
+		SiegfriedFile other = new SiegfriedFile(1, "x.txt",
+			new PronomMatch[] {new PronomMatch("fmt/18")});
+		assertTrue(full.matches() == other.matches());
+		assertTrue(full.getMatch(0) == PronomMatch.of("fmt/18"));
+		SiegfriedFile multi = new SiegfriedFile(1, "y.txt", new PronomMatch[]
+			{new PronomMatch("fmt/18"), new PronomMatch("fmt/19")});
+		SiegfriedFile multi2 = new SiegfriedFile(2, "z.txt", new PronomMatch[]
+			{new PronomMatch("fmt/18"), new PronomMatch("fmt/19")});
+		assertTrue(multi.matches() == multi2.matches());
+		assertEquals("fmt/19", multi2.getMatch(1).pronom());
+		assertEquals(1, full.matchCount());
+		assertEquals(0, new SiegfriedFile(1, "").matchCount());
+		boolean exception = false;
+		try
+		{
+			multi.matches().add(PronomMatch.of("fmt/20"));
+		}
+		catch (UnsupportedOperationException e)
+		{
+			exception = true;
+		}
+		assertTrue(exception);
+		assertEquals(2, multi2.matchCount());
 	}
 	
 	